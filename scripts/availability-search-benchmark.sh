@@ -0,0 +1,24 @@
+#!/usr/bin/env bash
+# Поиск свободных вещей на период (GET /items/search?start=&end=) на Postgres: замеряется сам
+# ItemRepository.findAvailableItemsByTextAndPeriod с индексом idx_bookings_item_status_dates и без него.
+# Нужна отдельная пустая база: схема создаётся миграциями, данные генерируются и после замера удаляются.
+# Использование: scripts/availability-search-benchmark.sh JDBC_URL [N_BOOKINGS] [N_ITEMS]
+# Например: scripts/availability-search-benchmark.sh jdbc:postgresql://localhost:5432/shareit_bench
+set -euo pipefail
+
+URL=${1:?"Укажите JDBC URL пустой базы Postgres"}
+N_BOOKINGS=${2:-2000000}
+N_ITEMS=${3:-200000}
+
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+cd "$(dirname "$0")/.."
+if ! mvn -B -q test -Dtest=AvailabilitySearchBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+    -Dshareit.benchmark.jdbc-url="$URL" \
+    -Dshareit.benchmark.username="${PGUSER:-postgres}" -Dshareit.benchmark.password="${PGPASSWORD:-postgres}" \
+    -Dshareit.benchmark.bookings="$N_BOOKINGS" -Dshareit.benchmark.items="$N_ITEMS" > "$LOG" 2>&1; then
+    tail -50 "$LOG"
+    exit 1
+fi
+grep -E '^(Данные|С индексом|Без индекса)' "$LOG"
@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+# Частичное обновление вещи (PATCH /items/{id}) на Postgres: время ItemService.update и число SQL-запросов
+# на вызов. Нужна отдельная пустая база: схема создаётся миграциями, данные генерируются и после замера удаляются.
+# Использование: scripts/item-update-benchmark.sh JDBC_URL [N_ITERATIONS] [N_ITEMS]
+# Например: scripts/item-update-benchmark.sh jdbc:postgresql://localhost:5432/shareit_bench
+set -euo pipefail
+
+URL=${1:?"Укажите JDBC URL пустой базы Postgres"}
+N_ITERATIONS=${2:-10000}
+N_ITEMS=${3:-100000}
+
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+cd "$(dirname "$0")/.."
+if ! mvn -B -q test -Dtest=ItemUpdateBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+    -Dshareit.benchmark.jdbc-url="$URL" \
+    -Dshareit.benchmark.username="${PGUSER:-postgres}" -Dshareit.benchmark.password="${PGPASSWORD:-postgres}" \
+    -Dshareit.benchmark.iterations="$N_ITERATIONS" -Dshareit.benchmark.items="$N_ITEMS" > "$LOG" 2>&1; then
+    tail -50 "$LOG"
+    exit 1
+fi
+grep -E '^(Данные|PATCH)' "$LOG"
@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+# Замер сериализации ответов в JSON, CBOR и Smile: процессорное время на один ответ и размер тела с gzip и без.
+# Использование: scripts/serialization-benchmark.sh [итераций]
+set -euo pipefail
+
+ITERATIONS="${1:-5000}"
+
+cd "$(dirname "$0")/.."
+mvn -B -q test -Dtest=SerializationBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+    -Dshareit.benchmark=true -Dshareit.benchmark.iterations="$ITERATIONS"
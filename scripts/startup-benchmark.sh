@@ -0,0 +1,36 @@
+#!/usr/bin/env bash
+# Время до первого успешного запроса для jar ShareItApp: обычный запуск против профиля startup (AOT + CDS + lazy init).
+# Перед запуском: mvn -Pstartup -DskipTests package; база из application.properties должна быть доступна.
+# Использование: scripts/startup-benchmark.sh [число_прогонов]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+APP_DIR=${APP_DIR:-target/cds}
+JAR=$(ls "$APP_DIR"/shareit-*.jar)
+URL="http://localhost:$PORT/users"
+
+measure() {
+    local label=$1
+    shift
+    local total=0
+    for i in $(seq 1 "$RUNS"); do
+        local start
+        start=$(date +%s%N)
+        java "$@" -jar "$JAR" --server.port="$PORT" > /dev/null 2>&1 &
+        local pid=$!
+        until curl -sf -o /dev/null "$URL"; do
+            sleep 0.05
+        done
+        local elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+        kill "$pid"
+        wait "$pid" 2> /dev/null || true
+        echo "$label, прогон $i: ${elapsed} мс"
+        total=$((total + elapsed))
+    done
+    echo "$label, среднее: $((total / RUNS)) мс"
+}
+
+measure "по умолчанию"
+measure "startup" -XX:SharedArchiveFile="$APP_DIR/application.jsa" -Dspring.aot.enabled=true \
+    -Dspring.profiles.active=startup
@@ -4,12 +4,19 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingChangesDto;
+import ru.practicum.shareit.booking.dto.BookingCountsDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.service.BookingChangeFeed;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingStreamRegistry;
+import ru.practicum.shareit.monitoring.RequestLogSampler;
 
 import java.util.List;
 
@@ -20,6 +27,9 @@ import java.util.List;
 @Validated
 public class BookingController {
     private final BookingService bookingService;
+    private final BookingStreamRegistry bookingStreamRegistry;
+    private final BookingChangeFeed bookingChangeFeed;
+    private final RequestLogSampler logSampler;
 
     @PostMapping
     public BookingDto addBooking(@Valid @RequestBody BookingRequestDto request,
@@ -38,10 +48,45 @@ public class BookingController {
 
     }
 
+    @GetMapping("/counts")
+    public BookingCountsDto getBookingCounts(@Positive @RequestHeader("X-Sharer-User-Id") Long userId) {
+        logSampler.atInfo(log).addKeyValue("userId", userId).log("Запрос на получение числа бронирований");
+        return bookingService.getBookingCounts(userId);
+    }
+
+    @GetMapping("/owner/counts")
+    public BookingCountsDto getItemBookingCounts(@Positive @RequestHeader("X-Sharer-User-Id") Long userId) {
+        logSampler.atInfo(log).addKeyValue("userId", userId).log("Запрос на получение числа бронирований вещей");
+        return bookingService.getItemBookingCounts(userId);
+    }
+
+    // изменения бронирований арендатора после токена since, без since - все бронирования
+    @GetMapping("/changes")
+    public BookingChangesDto getBookingChanges(@Positive @RequestHeader("X-Sharer-User-Id") Long userId,
+                                               @RequestParam(required = false) String since) {
+        logSampler.atInfo(log).addKeyValue("userId", userId).log("Запрос на получение изменений бронирований");
+        return bookingChangeFeed.getBookerChanges(userId, since);
+    }
+
+    @GetMapping("/owner/changes")
+    public BookingChangesDto getItemBookingChanges(@Positive @RequestHeader("X-Sharer-User-Id") Long userId,
+                                                   @RequestParam(required = false) String since) {
+        logSampler.atInfo(log).addKeyValue("userId", userId)
+                .log("Запрос на получение изменений бронирований вещей");
+        return bookingChangeFeed.getOwnerChanges(userId, since);
+    }
+
+    // события о новых бронированиях и смене статуса для владельца вещи и арендатора
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookings(@Positive @RequestHeader("X-Sharer-User-Id") Long userId) {
+        return bookingStreamRegistry.subscribe(userId);
+    }
+
     @GetMapping("/{bookingsId}")
     public BookingDto getBookingById(@Positive @RequestHeader("X-Sharer-User-Id") Long userId,
                                      @Positive @PathVariable("bookingsId") Long bookingId) {
-        log.info("Запрос на получение бронирования с id: {}", bookingId);
+        logSampler.atInfo(log).addKeyValue("userId", userId).addKeyValue("bookingId", bookingId)
+                .log("Запрос на получение бронирования");
         return bookingService.getBookingById(userId, bookingId);
     }
 
@@ -50,7 +95,8 @@ public class BookingController {
                                           @RequestParam(value = "state", defaultValue = "ALL") String status) {
         try {
             BookingState state = BookingState.valueOf(status);
-            log.info("Запрос на получение бронирований,userId: {}", userIdStr);
+            logSampler.atInfo(log).addKeyValue("userId", userIdStr).addKeyValue("state", state)
+                    .log("Запрос на получение бронирований");
             return bookingService.getAllBooking(userIdStr, state);
         } catch (IllegalArgumentException e) {
             throw new RuntimeException(e);
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingChangesDto {
+    // созданные и изменённые после токена, в порядке изменения
+    private List<BookingDto> changed;
+    // id бронирований, удалённых после токена
+    private List<Long> deleted;
+    // передаётся в since следующего запроса
+    private String nextToken;
+    // изменений больше, чем вошло в ответ: следующий запрос можно делать сразу
+    private boolean hasMore;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// число бронирований по вкладкам: значения совпадают с размером списков GET /bookings?state=...
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingCountsDto {
+    private long all;
+    private long waiting;
+    private long approved;
+    private long rejected;
+    private long current;
+    private long past;
+    private long future;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// содержимое события жизненного цикла бронирования в outbox
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingEventDto {
+    private Long bookingId;
+    private Long itemId;
+    private Long ownerId;
+    private Long bookerId;
+    private String status;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private LocalDateTime occurredAt;
+}
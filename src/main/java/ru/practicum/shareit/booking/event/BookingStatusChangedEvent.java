@@ -0,0 +1,46 @@
+package ru.practicum.shareit.booking.event;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Смена статуса бронирования. Публикуется внутри транзакции сервиса;
+ * oldStatus == null означает создание бронирования. Создаётся фабриками created и statusChanged
+ * по уже сохранённому бронированию.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BookingStatusChangedEvent {
+    private final Long bookingId;
+    private final Long itemId;
+    private final Long bookerId;
+    private final Long ownerId;
+    private final Long actorId;
+    private final BookingStatus oldStatus;
+    private final BookingStatus newStatus;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
+    private final LocalDateTime occurredAt;
+
+    public static BookingStatusChangedEvent created(Booking booking) {
+        return of(booking, booking.getBooker().getId(), null, booking.getCreatedAt());
+    }
+
+    public static BookingStatusChangedEvent statusChanged(Booking booking, Long actorId, BookingStatus oldStatus) {
+        return of(booking, actorId, oldStatus, LocalDateTime.now());
+    }
+
+    private static BookingStatusChangedEvent of(Booking booking, Long actorId, BookingStatus oldStatus,
+                                                LocalDateTime occurredAt) {
+        return new BookingStatusChangedEvent(booking.getId(), booking.getItem().getId(), booking.getBooker().getId(),
+                booking.getItem().getOwner().getId(), actorId, oldStatus, booking.getStatus(),
+                booking.getStart(), booking.getEnd(), occurredAt);
+    }
+}
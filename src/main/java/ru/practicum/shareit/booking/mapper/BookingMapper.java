@@ -2,6 +2,7 @@ package ru.practicum.shareit.booking.mapper;
 
 import org.springframework.stereotype.Component;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.model.Booking;
@@ -11,6 +12,8 @@ import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+
 
 @Component
 public class BookingMapper {
@@ -28,6 +31,7 @@ public class BookingMapper {
                 .start(bookingRequestDto.getStart())
                 .end(bookingRequestDto.getEnd())
                 .status(BookingStatus.WAITING)
+                .createdAt(LocalDateTime.now())
                 .build();
     }
 
@@ -61,4 +65,22 @@ public class BookingMapper {
                 booking.getEnd()
         );
     }
+
+    // событие для outbox
+    public BookingEventDto toEventDto(Booking booking) {
+        if (booking == null) {
+            return null;
+        }
+
+        return new BookingEventDto(
+                booking.getId(),
+                booking.getItem().getId(),
+                booking.getItem().getOwner().getId(),
+                booking.getBooker().getId(),
+                booking.getStatus().name(),
+                booking.getStart(),
+                booking.getEnd(),
+                LocalDateTime.now()
+        );
+    }
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.booking.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.practicum.shareit.booking.service.BookingChangeStamps;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.model.User;
 
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "bookings")
+@EntityListeners(BookingChangeStamps.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -36,4 +38,12 @@ public class Booking {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private BookingStatus status;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // время последней записи, по нему клиенты забирают изменения (GET /bookings/changes);
+    // ставит BookingChangeStamps при каждой записи
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
 }
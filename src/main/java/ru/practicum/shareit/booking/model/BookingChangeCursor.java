@@ -0,0 +1,37 @@
+package ru.practicum.shareit.booking.model;
+
+import ru.practicum.shareit.exceptions.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Позиция в ленте изменений бронирований: время изменения и id последней отданной записи.
+ * Клиент получает её как непрозрачный токен и передаёт обратно в since.
+ */
+public record BookingChangeCursor(LocalDateTime at, long id) {
+    public static final Comparator<BookingChangeCursor> ORDER =
+            Comparator.comparing(BookingChangeCursor::at).thenComparingLong(BookingChangeCursor::id);
+
+    // начало ленты: первый запрос без since получает все бронирования
+    public static final BookingChangeCursor START = new BookingChangeCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    public static BookingChangeCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.lastIndexOf('|');
+            return new BookingChangeCursor(LocalDateTime.parse(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный токен синхронизации: " + token);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((at + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
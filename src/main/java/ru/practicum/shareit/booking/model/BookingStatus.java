@@ -1,7 +1,8 @@
 package ru.practicum.shareit.booking.model;
 
+// порядок значений хранится в журнале бронирований: новые статусы добавлять только в конец
 public enum BookingStatus {
     WAITING,
     APPROVED,
     REJECTED
-}
\ No newline at end of file
+}
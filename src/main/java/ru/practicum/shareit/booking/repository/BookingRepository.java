@@ -1,21 +1,45 @@
 package ru.practicum.shareit.booking.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.dto.BookingCountsDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerIdOrderByStartDesc(Long userId);
+    // бронирования удалённых (ещё не вычищенных) вещей и пользователей скрыты из всех выборок
+    String ACTIVE = "AND b.item.deleted = false AND b.booker.deleted = false ";
+    // после курсора (updatedAt, id) и не позже upTo; условие по updatedAt >= :since оставляет поиск по индексу
+    String CHANGED = "AND b.updatedAt >= :since AND (b.updatedAt > :since OR b.id > :sinceId) " +
+            "AND b.updatedAt <= :upTo ";
 
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.id = :bookingId " +
+            ACTIVE)
+    Optional<Booking> findActiveById(@Param("bookingId") Long bookingId);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.booker.id = :userId " +
+            ACTIVE +
+            "ORDER BY b.start DESC")
+    List<Booking> findByBookerIdOrderByStartDesc(@Param("userId") Long userId);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.booker.id = :userId " +
             "AND b.end < :now " +
             "AND b.status = 'APPROVED' " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findFinishedByBookerId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
 
@@ -23,12 +47,35 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "WHERE b.item.id = :itemId " +
             "AND b.status = 'APPROVED' " +
             "AND b.end < :now " +
+            ACTIVE +
             "ORDER BY b.end DESC")
     List<Booking> findLastBookings(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
 
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.item.id IN :itemIds " +
+            "AND b.status = 'APPROVED' " +
+            ACTIVE +
+            "AND b.end = (SELECT MAX(b2.end) FROM Booking b2 " +
+            "WHERE b2.item.id = b.item.id AND b2.status = 'APPROVED' AND b2.end < :now " +
+            "AND b2.booker.deleted = false)")
+    List<Booking> findLastBookingsForItems(@Param("itemIds") Collection<Long> itemIds,
+                                           @Param("now") LocalDateTime now);
+
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.item.id IN :itemIds " +
+            "AND b.status = 'APPROVED' " +
+            ACTIVE +
+            "AND b.start = (SELECT MIN(b2.start) FROM Booking b2 " +
+            "WHERE b2.item.id = b.item.id AND b2.status = 'APPROVED' AND b2.start > :now " +
+            "AND b2.booker.deleted = false)")
+    List<Booking> findNextBookingsForItems(@Param("itemIds") Collection<Long> itemIds,
+                                           @Param("now") LocalDateTime now);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.booker.id = :userId " +
             "AND b.start > :now " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findAllByBookerIdAndStartTimeIsAfter(@Param("userId") Long userId, @Param("now") LocalDateTime now);
 
@@ -36,48 +83,117 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "WHERE b.item.id = :itemId " +
             "AND b.status = 'APPROVED' " +
             "AND b.start > :now " +
+            ACTIVE +
             "ORDER BY b.start ASC")
     List<Booking> findNextBookings(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.booker.id = :userId " +
             "AND (:status = 'ALL' OR b.status = :status) " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findByBookerIdAndStatus(@Param("userId") Long userId, @Param("status") BookingStatus status);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.item.owner.id = :ownerId " +
             "AND b.start <= :now " +
             "AND b.end > :now " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findCurrentByOwnerId(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.item.owner.id = :ownerId " +
             "AND b.end < :now " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findPastByOwnerId(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.item.owner.id = :ownerId " +
             "AND b.start > :now " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findFutureByOwnerId(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.item.owner.id = :ownerId " +
             "AND (:status = 'ALL' OR b.status = :status) " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findByOwnerIdAndStatus(
             @Param("ownerId") Long ownerId,
             @Param("status") BookingStatus status);
 
-    List<Booking> findByItemOwnerIdOrderByStartDesc(Long ownerId);
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.item.owner.id = :ownerId " +
+            ACTIVE +
+            "ORDER BY b.start DESC")
+    List<Booking> findByItemOwnerIdOrderByStartDesc(@Param("ownerId") Long ownerId);
 
+    @EntityGraph(attributePaths = {"item", "booker"})
     @Query("SELECT b FROM Booking b " +
             "WHERE b.booker.id = :userId " +
             "AND b.start <= :now " +
             "AND b.end > :now " +
+            ACTIVE +
             "ORDER BY b.start DESC")
     List<Booking> findCurrentByBookerId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
-}
\ No newline at end of file
+
+    // PAST у арендатора - только завершённые подтверждённые, как в findFinishedByBookerId
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingCountsDto(" +
+            "COUNT(b), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'WAITING' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'APPROVED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'REJECTED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.start <= :now AND b.end > :now THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.end < :now AND b.status = 'APPROVED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.start > :now THEN 1L ELSE 0L END), 0L)) " +
+            "FROM Booking b " +
+            "WHERE b.booker.id = :userId " +
+            ACTIVE)
+    BookingCountsDto countByBookerId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Query("SELECT new ru.practicum.shareit.booking.dto.BookingCountsDto(" +
+            "COUNT(b), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'WAITING' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'APPROVED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.status = 'REJECTED' THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.start <= :now AND b.end > :now THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.end < :now THEN 1L ELSE 0L END), 0L), " +
+            "COALESCE(SUM(CASE WHEN b.start > :now THEN 1L ELSE 0L END), 0L)) " +
+            "FROM Booking b " +
+            "WHERE b.item.owner.id = :ownerId " +
+            ACTIVE)
+    BookingCountsDto countByOwnerId(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.booker.id = :userId " +
+            CHANGED +
+            ACTIVE +
+            "ORDER BY b.updatedAt, b.id")
+    List<Booking> findChangedByBookerId(@Param("userId") Long userId,
+                                        @Param("since") LocalDateTime since,
+                                        @Param("sinceId") long sinceId,
+                                        @Param("upTo") LocalDateTime upTo,
+                                        Pageable pageable);
+
+    @EntityGraph(attributePaths = {"item", "booker"})
+    @Query("SELECT b FROM Booking b " +
+            "WHERE b.item.owner.id = :ownerId " +
+            CHANGED +
+            ACTIVE +
+            "ORDER BY b.updatedAt, b.id")
+    List<Booking> findChangedByOwnerId(@Param("ownerId") Long ownerId,
+                                       @Param("since") LocalDateTime since,
+                                       @Param("sinceId") long sinceId,
+                                       @Param("upTo") LocalDateTime upTo,
+                                       Pageable pageable);
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.model.BookingChangeCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// надгробия удалённых бронирований пишет очистка (PurgeRepository), здесь только чтение и удаление старых
+@Repository
+@RequiredArgsConstructor
+public class BookingTombstoneRepository {
+    private static final RowMapper<BookingChangeCursor> CURSOR = (rs, rowNum) ->
+            new BookingChangeCursor(rs.getTimestamp("deleted_at").toLocalDateTime(), rs.getLong("booking_id"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<BookingChangeCursor> findByBookerId(long bookerId, BookingChangeCursor since,
+                                                    LocalDateTime upTo, int limit) {
+        return find("booker_id", bookerId, since, upTo, limit);
+    }
+
+    public List<BookingChangeCursor> findByOwnerId(long ownerId, BookingChangeCursor since,
+                                                   LocalDateTime upTo, int limit) {
+        return find("owner_id", ownerId, since, upTo, limit);
+    }
+
+    public int deleteBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM booking_tombstones WHERE deleted_at < ?", before);
+    }
+
+    private List<BookingChangeCursor> find(String userColumn, long userId, BookingChangeCursor since,
+                                           LocalDateTime upTo, int limit) {
+        return jdbcTemplate.query("SELECT booking_id, deleted_at FROM booking_tombstones " +
+                        "WHERE " + userColumn + " = ? " +
+                        "AND deleted_at >= ? AND (deleted_at > ? OR booking_id > ?) " +
+                        "AND deleted_at <= ? " +
+                        "ORDER BY deleted_at, booking_id LIMIT ?",
+                CURSOR, userId, since.at(), since.at(), since.id(), upTo, limit);
+    }
+}
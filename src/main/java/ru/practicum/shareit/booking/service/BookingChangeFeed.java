@@ -0,0 +1,155 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingChangesDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingChangeCursor;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.repository.BookingTombstoneRepository;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.sharding.ShardScatter;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Лента изменений бронирований для инкрементальной синхронизации клиентов вместо перезагрузки списков.
+ * Позиция в ленте - (updated_at, id) последней отданной записи, удаления берутся из booking_tombstones.
+ * Записи моложе settle-delay не отдаются: транзакция, записавшая строку чуть раньше, могла ещё
+ * не закоммититься, и клиент перескочил бы через неё. Что транзакция не держит отметку дольше,
+ * проверяет перед коммитом {@link BookingChangeStamps}.
+ */
+@Component
+public class BookingChangeFeed {
+    private static final Comparator<Change> ORDER = Comparator.comparing(Change::cursor, BookingChangeCursor.ORDER);
+
+    private final BookingRepository bookingRepository;
+    private final BookingTombstoneRepository tombstoneRepository;
+    private final UserRepository userRepository;
+    private final BookingMapper bookingMapper;
+    private final ShardRouter shardRouter;
+    private final ShardScatter shardScatter;
+    private final int pageSize;
+    private final Duration settleDelay;
+    private final Duration tombstoneRetention;
+
+    public BookingChangeFeed(BookingRepository bookingRepository,
+                             BookingTombstoneRepository tombstoneRepository,
+                             UserRepository userRepository,
+                             BookingMapper bookingMapper,
+                             ShardRouter shardRouter,
+                             ShardScatter shardScatter,
+                             @Value("${shareit.booking-changes.page-size:100}") int pageSize,
+                             @Value("${shareit.booking-changes.settle-delay:2s}") Duration settleDelay,
+                             @Value("${shareit.booking-changes.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.bookingRepository = bookingRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.userRepository = userRepository;
+        this.bookingMapper = bookingMapper;
+        this.shardRouter = shardRouter;
+        this.shardScatter = shardScatter;
+        this.pageSize = pageSize;
+        this.settleDelay = settleDelay;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    // бронирования арендатора лежат на шардах владельцев вещей: лента собирается со всех шардов
+    public BookingChangesDto getBookerChanges(Long userId, String since) {
+        checkUser(userId);
+        BookingChangeCursor cursor = parse(since);
+        LocalDateTime upTo = upTo();
+        List<Change> changes = shardScatter.gatherSorted(() -> merge(
+                bookingRepository.findChangedByBookerId(userId, cursor.at(), cursor.id(), upTo,
+                        PageRequest.of(0, pageSize + 1)),
+                since == null ? List.of() : tombstoneRepository.findByBookerId(userId, cursor, upTo, pageSize + 1)),
+                ORDER);
+        return toDto(changes, cursor, upTo);
+    }
+
+    public BookingChangesDto getOwnerChanges(Long userId, String since) {
+        shardRouter.routeByOwner(userId);
+        checkUser(userId);
+        BookingChangeCursor cursor = parse(since);
+        LocalDateTime upTo = upTo();
+        List<Change> changes = merge(
+                bookingRepository.findChangedByOwnerId(userId, cursor.at(), cursor.id(), upTo,
+                        PageRequest.of(0, pageSize + 1)),
+                since == null ? List.of() : tombstoneRepository.findByOwnerId(userId, cursor, upTo, pageSize + 1));
+        return toDto(changes, cursor, upTo);
+    }
+
+    private void checkUser(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+        }
+    }
+
+    // без since лента начинается с начала; удаления до токена старше срока хранения надгробий уже потеряны
+    private BookingChangeCursor parse(String since) {
+        if (since == null) {
+            return BookingChangeCursor.START;
+        }
+        BookingChangeCursor cursor = BookingChangeCursor.decode(since);
+        if (cursor.at().isBefore(LocalDateTime.now().minus(tombstoneRetention))) {
+            throw new ValidationException("Токен синхронизации устарел, нужна полная синхронизация: " +
+                    "запрос без since");
+        }
+        return cursor;
+    }
+
+    private LocalDateTime upTo() {
+        return LocalDateTime.now().minus(settleDelay).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // изменения и удаления одного шарда одной последовательностью, не длиннее страницы + 1
+    private List<Change> merge(List<Booking> bookings, List<BookingChangeCursor> tombstones) {
+        return Stream.concat(
+                        bookings.stream().map(booking -> new Change(
+                                new BookingChangeCursor(booking.getUpdatedAt(), booking.getId()),
+                                bookingMapper.toDto(booking))),
+                        tombstones.stream().map(tombstone -> new Change(tombstone, null)))
+                .sorted(ORDER)
+                .limit(pageSize + 1)
+                .toList();
+    }
+
+    private BookingChangesDto toDto(List<Change> changes, BookingChangeCursor since, LocalDateTime upTo) {
+        boolean hasMore = changes.size() > pageSize;
+        List<Change> page = hasMore ? changes.subList(0, pageSize) : changes;
+
+        List<BookingDto> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (Change change : page) {
+            if (change.booking() != null) {
+                changed.add(change.booking());
+            } else {
+                deleted.add(change.cursor().id());
+            }
+        }
+
+        // если отдано всё до upTo, следующий запрос начинается сразу после upTo
+        BookingChangeCursor next = hasMore
+                ? page.getLast().cursor()
+                : new BookingChangeCursor(upTo, Long.MAX_VALUE);
+        if (BookingChangeCursor.ORDER.compare(next, since) < 0) {
+            next = since;
+        }
+        return new BookingChangesDto(changed, deleted, next.encode(), hasMore);
+    }
+
+    // booking == null - бронирование удалено
+    private record Change(BookingChangeCursor cursor, BookingDto booking) {
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.shareit.booking.service;
+
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Отметки времени ленты изменений: updated_at бронирований и deleted_at надгробий.
+ * Отметка ставится часами JVM при записи, а читателям строка видна только после коммита, поэтому
+ * {@link BookingChangeFeed} не отдаёт записи моложе settle-delay. Это верно, пока от отметки до коммита
+ * проходит меньше settle-delay: транзакция, в которой отметка старше max-stamp-age, откатывается перед
+ * коммитом, и клиент получает 503. Запас между max-stamp-age и settle-delay покрывает сам коммит
+ * и расхождение часов между экземплярами приложения.
+ */
+@Component
+public class BookingChangeStamps {
+    private final Duration maxStampAge;
+
+    public BookingChangeStamps(@Value("${shareit.booking-changes.settle-delay:2s}") Duration settleDelay,
+                               @Value("${shareit.booking-changes.max-stamp-age:1s}") Duration maxStampAge) {
+        if (maxStampAge.compareTo(settleDelay) >= 0) {
+            throw new IllegalStateException("shareit.booking-changes.max-stamp-age должен быть меньше settle-delay");
+        }
+        this.maxStampAge = maxStampAge;
+    }
+
+    // слушатель сущности Booking: Hibernate берёт его из контекста Spring
+    @PrePersist
+    @PreUpdate
+    public void touch(Booking booking) {
+        booking.setUpdatedAt(stamp());
+    }
+
+    // с точностью до микросекунд, как хранит база: иначе курсор по отметке не совпадёт со строкой
+    public LocalDateTime stamp() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        // проверяется первая, то есть самая старая отметка транзакции
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.getSynchronizations().stream()
+                .noneMatch(StampAgeCheck.class::isInstance)) {
+            TransactionSynchronizationManager.registerSynchronization(new StampAgeCheck(System.nanoTime()));
+        }
+        return now;
+    }
+
+    private final class StampAgeCheck implements TransactionSynchronization {
+        private final long firstStamp;
+
+        private StampAgeCheck(long firstStamp) {
+            this.firstStamp = firstStamp;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (System.nanoTime() - firstStamp > maxStampAge.toNanos()) {
+                throw new ServiceUnavailableException("Изменение бронирований не уложилось в " +
+                        maxStampAge.toMillis() + " мс и отменено, повторите запрос");
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.shareit.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.dto.BookingCountsDto;
+import ru.practicum.shareit.booking.event.BookingStatusChangedEvent;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш счётчиков бронирований по пользователю с коротким TTL.
+ * Сбрасывается после коммита изменения бронирования у арендатора и владельца;
+ * переходы CURRENT/PAST/FUTURE по времени догоняются за счёт TTL.
+ * Поколение записи защищает от гонки: значение, посчитанное до сброса, в кэш не попадёт.
+ */
+@Component
+public class BookingCountsCache {
+    private final long ttlNanos;
+    private final ConcurrentHashMap<Long, Entry> bookerCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry> ownerCounts = new ConcurrentHashMap<>();
+
+    public BookingCountsCache(@Value("${shareit.booking-counts.ttl:30s}") Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public BookingCountsDto getBookerCounts(Long userId, Supplier<BookingCountsDto> loader) {
+        return get(bookerCounts, userId, loader);
+    }
+
+    public BookingCountsDto getOwnerCounts(Long userId, Supplier<BookingCountsDto> loader) {
+        return get(ownerCounts, userId, loader);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(BookingStatusChangedEvent event) {
+        invalidate(bookerCounts, event.getBookerId());
+        invalidate(ownerCounts, event.getOwnerId());
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking-counts.evict-interval:60000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        // метки сброса живут не меньше TTL, чтобы медленная загрузка не вернула устаревшее значение
+        bookerCounts.values().removeIf(entry -> now - entry.expiresAt >= 0);
+        ownerCounts.values().removeIf(entry -> now - entry.expiresAt >= 0);
+    }
+
+    private BookingCountsDto get(ConcurrentHashMap<Long, Entry> cache, Long userId,
+                                 Supplier<BookingCountsDto> loader) {
+        long now = System.nanoTime();
+        Entry entry = cache.get(userId);
+        if (entry != null && !entry.isExpired(now)) {
+            return entry.counts;
+        }
+
+        long generation = entry != null ? entry.generation : 0;
+        BookingCountsDto counts = loader.get();
+        Entry loaded = new Entry(counts, now + ttlNanos, generation);
+        cache.compute(userId, (id, current) -> {
+            long currentGeneration = current != null ? current.generation : 0;
+            return currentGeneration == generation ? loaded : current;
+        });
+        return counts;
+    }
+
+    private void invalidate(ConcurrentHashMap<Long, Entry> cache, Long userId) {
+        long expiresAt = System.nanoTime() + ttlNanos;
+        cache.compute(userId, (id, current) -> new Entry(null, expiresAt, current != null ? current.generation + 1 : 1));
+    }
+
+    private record Entry(BookingCountsDto counts, long expiresAt, long generation) {
+        boolean isExpired(long now) {
+            return counts == null || now - expiresAt >= 0;
+        }
+    }
+}
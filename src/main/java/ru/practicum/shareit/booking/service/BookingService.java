@@ -1,11 +1,14 @@
 package ru.practicum.shareit.booking.service;
 
+import ru.practicum.shareit.booking.dto.BookingCountsDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.model.BookingState;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
 
@@ -19,9 +22,17 @@ public interface BookingService {
 
     List<BookingDto> getAllItemBooking(Long userId, BookingState state);
 
+    BookingCountsDto getBookingCounts(Long userId);
+
+    BookingCountsDto getItemBookingCounts(Long userId);
+
     boolean hasUserFinishedBookingForItem(Long userId, Long itemId);
 
     BookingShortDto getLastBookingForItem(Long itemId);
 
     BookingShortDto getNextBookingForItem(Long itemId);
+
+    Map<Long, BookingShortDto> getLastBookingsForItems(Collection<Long> itemIds);
+
+    Map<Long, BookingShortDto> getNextBookingsForItems(Collection<Long> itemIds);
 }
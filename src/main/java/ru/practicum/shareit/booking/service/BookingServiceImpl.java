@@ -3,10 +3,13 @@ package ru.practicum.shareit.booking.service;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.booking.dto.BookingCountsDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.booking.event.BookingStatusChangedEvent;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
@@ -17,25 +20,44 @@ import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.monitoring.RequestLogSampler;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.service.OutboxService;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.sharding.ShardScatter;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BookingServiceImpl implements BookingService {
+    private static final Comparator<BookingDto> BY_START_DESC = Comparator.comparing(BookingDto::getStart).reversed();
+
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final BookingMapper bookingMapper;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BookingCountsCache bookingCountsCache;
+    private final RequestLogSampler logSampler;
+    private final ShardRouter shardRouter;
+    private final ShardScatter shardScatter;
 
     @Transactional
     @Override
     public BookingDto addBooking(BookingRequestDto request) {
+        shardRouter.routeByItem(request.getItemId());
         User booker = userRepository.findById(request.getBooker()).orElseThrow(() ->
                 new NotFoundException("Пользователь с id:" + request.getBooker() + " не найден"));
         Item item = itemRepository.findById(request.getItemId()).orElseThrow(() ->
@@ -49,16 +71,20 @@ public class BookingServiceImpl implements BookingService {
         Booking booking = bookingMapper.toEntity(request, item, booker);
         booking.setStatus(BookingStatus.WAITING);
         booking = bookingRepository.save(booking);
+        outboxService.publish(OutboxEventType.BOOKING_CREATED, booking.getId(), bookingMapper.toEventDto(booking));
+        eventPublisher.publishEvent(BookingStatusChangedEvent.created(booking));
         log.info("Добавление бронирования с id: {}", booking.getId());
         return bookingMapper.toDto(booking);
     }
 
     @Override
     public BookingDto getBookingById(Long userId, Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(() ->
+        shardRouter.routeByBooking(bookingId);
+        Booking booking = bookingRepository.findActiveById(bookingId).orElseThrow(() ->
                 new NotFoundException("Запрос на бронирование с id: " + bookingId + " не найден"));
         if (booking.getBooker().getId().equals(userId) || booking.getItem().getOwner().getId().equals(userId)) {
-            log.info("Получение бронирования пользователя с id:{}", userId);
+            logSampler.atInfo(log).addKeyValue("userId", userId).addKeyValue("bookingId", bookingId)
+                    .log("Получение бронирования");
             return bookingMapper.toDto(booking);
         }
         throw new ValidationException("Пользователь с id: " + userId + " не является: пользователем вещи или тем кто забронировал вещь");
@@ -67,33 +93,25 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public List<BookingDto> getAllBooking(Long userId, BookingState state) {
         LocalDateTime now = LocalDateTime.now();
+        logSampler.atInfo(log).addKeyValue("userId", userId).addKeyValue("state", state)
+                .log("Получение бронирований пользователя");
 
         switch (state.toString()) {
             case "ALL":
-                log.info("Получение всех бронирований пользователя с id: {}", userId);
-                return bookingRepository.findByBookerIdOrderByStartDesc(userId)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() -> bookingRepository.findByBookerIdOrderByStartDesc(userId));
             case "CURRENT":
-                log.info("Получение текущих бронирований пользователя с id: {}", userId);
-                return bookingRepository.findCurrentByBookerId(userId, now)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() -> bookingRepository.findCurrentByBookerId(userId, now));
             case "PAST":
-                log.info("Получение прошлых бронирований пользователя с id: {}", userId);
-                return bookingRepository.findFinishedByBookerId(userId, now)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() -> bookingRepository.findFinishedByBookerId(userId, now));
             case "FUTURE":
-                log.info("Получение будущих бронирований пользователя с id: {}", userId);
-                return bookingRepository.findAllByBookerIdAndStartTimeIsAfter(userId, now)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() -> bookingRepository.findAllByBookerIdAndStartTimeIsAfter(userId, now));
             case "WAITING":
-                log.info("Получение ожидающих бронирований пользователя с id: {}", userId);
-                return bookingRepository.findByBookerIdAndStatus(userId, BookingStatus.WAITING)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() ->
+                        bookingRepository.findByBookerIdAndStatus(userId, BookingStatus.WAITING));
 
             case "REJECTED":
-                log.info("Получение отклоненных бронирований пользователя с id: {}", userId);
-                return bookingRepository.findByBookerIdAndStatus(userId, BookingStatus.REJECTED)
-                        .stream().map(bookingMapper::toDto).toList();
+                return gatherBookerBookings(() ->
+                        bookingRepository.findByBookerIdAndStatus(userId, BookingStatus.REJECTED));
 
             default:
                 log.warn("Неизвестный статус бронирования: {}", state);
@@ -104,10 +122,11 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     @Override
     public BookingDto respondToBooking(Long userId, Long bookingId, Boolean status) {
+        shardRouter.routeByBooking(bookingId);
         User owner = userRepository.findById(userId)
                 .orElseThrow(() -> new ValidationException("Пользователь с id:" + userId + " не найден"));
 
-        Booking booking = bookingRepository.findById(bookingId)
+        Booking booking = bookingRepository.findActiveById(bookingId)
                 .orElseThrow(() -> new NotFoundException("Запрос на бронирование с id:" + bookingId + " не найден"));
 
         if (!booking.getItem().getOwner().getId().equals(userId)) {
@@ -120,9 +139,13 @@ public class BookingServiceImpl implements BookingService {
                     booking.getStatus());
         }
 
+        BookingStatus oldStatus = booking.getStatus();
         BookingStatus newStatus = status ? BookingStatus.APPROVED : BookingStatus.REJECTED;
         booking.setStatus(newStatus);
         booking = bookingRepository.save(booking);
+        outboxService.publish(status ? OutboxEventType.BOOKING_APPROVED : OutboxEventType.BOOKING_REJECTED,
+                booking.getId(), bookingMapper.toEventDto(booking));
+        eventPublisher.publishEvent(BookingStatusChangedEvent.statusChanged(booking, owner.getId(), oldStatus));
 
         log.info("Бронирование с id: {} {} пользователем с id: {}",
                 bookingId,
@@ -135,6 +158,7 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public List<BookingDto> getAllItemBooking(Long userId, BookingState state) {
         LocalDateTime now = LocalDateTime.now();
+        shardRouter.routeByOwner(userId);
 
         userRepository.findById(userId)
                 .orElseThrow(() -> new ValidationException("Пользователь с id:" + userId + " не найден"));
@@ -143,34 +167,29 @@ public class BookingServiceImpl implements BookingService {
             log.warn("Пользователь с id: {} не является владельцем вещей", userId);
             throw new AccessException("Пользователь не является владельцем вещей");
         }
+        logSampler.atInfo(log).addKeyValue("userId", userId).addKeyValue("state", state)
+                .log("Получение бронирований вещей пользователя");
 
         switch (state.toString()) {
             case "ALL":
-                log.info("Получение всех бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findByItemOwnerIdOrderByStartDesc(userId)
                         .stream().map(bookingMapper::toDto).toList();
             case "CURRENT":
-                log.info("Получение текущих бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findCurrentByOwnerId(userId, now)
                         .stream().map(bookingMapper::toDto).toList();
             case "PAST":
-                log.info("Получение прошлых бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findPastByOwnerId(userId, now)
                         .stream().map(bookingMapper::toDto).toList();
             case "FUTURE":
-                log.info("Получение будущих бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findFutureByOwnerId(userId, now)
                         .stream().map(bookingMapper::toDto).toList();
             case "WAITING":
-                log.info("Получение ожидающих бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findByOwnerIdAndStatus(userId, BookingStatus.WAITING)
                         .stream().map(bookingMapper::toDto).toList();
             case "REJECTED":
-                log.info("Получение отклоненных бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findByOwnerIdAndStatus(userId, BookingStatus.REJECTED)
                         .stream().map(bookingMapper::toDto).toList();
             case "APPROVED":
-                log.info("Получение подтвержденных бронирований вещей пользователя с id: {}", userId);
                 return bookingRepository.findByOwnerIdAndStatus(userId, BookingStatus.APPROVED)
                         .stream().map(bookingMapper::toDto).toList();
             default:
@@ -179,6 +198,33 @@ public class BookingServiceImpl implements BookingService {
         }
     }
 
+    @Override
+    public BookingCountsDto getBookingCounts(Long userId) {
+        // пользователи есть на каждом шарде, проверяем на его собственном
+        shardRouter.routeByOwner(userId);
+        return bookingCountsCache.getBookerCounts(userId, () -> {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+            }
+            logSampler.atInfo(log).addKeyValue("userId", userId).log("Подсчёт бронирований пользователя");
+            LocalDateTime now = LocalDateTime.now();
+            return shardScatter.gather(() -> List.of(bookingRepository.countByBookerId(userId, now))).stream()
+                    .reduce(new BookingCountsDto(), BookingServiceImpl::sum);
+        });
+    }
+
+    @Override
+    public BookingCountsDto getItemBookingCounts(Long userId) {
+        shardRouter.routeByOwner(userId);
+        return bookingCountsCache.getOwnerCounts(userId, () -> {
+            if (!userRepository.existsById(userId)) {
+                throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+            }
+            logSampler.atInfo(log).addKeyValue("userId", userId).log("Подсчёт бронирований вещей пользователя");
+            return bookingRepository.countByOwnerId(userId, LocalDateTime.now());
+        });
+    }
+
     @Override
     public boolean hasUserFinishedBookingForItem(Long userId, Long itemId) {
         return bookingRepository.findFinishedByBookerId(userId, LocalDateTime.now())
@@ -211,4 +257,37 @@ public class BookingServiceImpl implements BookingService {
         Booking nextBooking = nextBookings.getFirst();
         return bookingMapper.toShortDto(nextBooking);
     }
+
+    @Override
+    public Map<Long, BookingShortDto> getLastBookingsForItems(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return toShortDtoByItemId(bookingRepository.findLastBookingsForItems(itemIds, LocalDateTime.now()));
+    }
+
+    @Override
+    public Map<Long, BookingShortDto> getNextBookingsForItems(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return toShortDtoByItemId(bookingRepository.findNextBookingsForItems(itemIds, LocalDateTime.now()));
+    }
+
+    private Map<Long, BookingShortDto> toShortDtoByItemId(List<Booking> bookings) {
+        return bookings.stream()
+                .map(bookingMapper::toShortDto)
+                .collect(Collectors.toMap(BookingShortDto::getItemId, b -> b, (first, second) -> first));
+    }
+
+    // бронирования арендатора лежат на шардах владельцев вещей: собираются со всех шардов
+    private List<BookingDto> gatherBookerBookings(Supplier<List<Booking>> query) {
+        return shardScatter.gatherSorted(() -> query.get().stream().map(bookingMapper::toDto).toList(), BY_START_DESC);
+    }
+
+    private static BookingCountsDto sum(BookingCountsDto a, BookingCountsDto b) {
+        return new BookingCountsDto(a.getAll() + b.getAll(), a.getWaiting() + b.getWaiting(),
+                a.getApproved() + b.getApproved(), a.getRejected() + b.getRejected(),
+                a.getCurrent() + b.getCurrent(), a.getPast() + b.getPast(), a.getFuture() + b.getFuture());
+    }
 }
@@ -0,0 +1,215 @@
+package ru.practicum.shareit.booking.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.dto.BookingEventDto;
+import ru.practicum.shareit.booking.event.BookingStatusChangedEvent;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Подписки на поток событий бронирований (SSE): владелец вещи и арендатор получают создание
+ * бронирования и смену его статуса сразу после коммита, без опроса списков.
+ * <p>
+ * Рассылка не блокирует транзакцию: событие кладётся в ограниченный буфер подписчика, а отправкой
+ * занимается отдельный виртуальный поток. Если клиент не успевает читать и буфер переполнен,
+ * подписка закрывается: клиент переподключается и перечитывает состояние через REST.
+ * Подписки живут в памяти экземпляра и получают только события, закоммиченные на нём же.
+ */
+@Slf4j
+@Component
+public class BookingStreamRegistry {
+    private static final Set<DataWithMediaType> CONNECTED = SseEmitter.event().comment("connected").build();
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("booking-stream-", 0).factory());
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final int maxPerUser;
+
+    private final Counter sentCounter;
+    private final Counter overflowCounter;
+
+    public BookingStreamRegistry(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${shareit.booking-stream.timeout:30m}") Duration timeout,
+                                 @Value("${shareit.booking-stream.buffer-size:64}") int bufferSize,
+                                 @Value("${shareit.booking-stream.max-subscribers:10000}") int maxSubscribers,
+                                 @Value("${shareit.booking-stream.max-per-user:5}") int maxPerUser) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.maxPerUser = maxPerUser;
+
+        this.sentCounter = meterRegistry.counter("shareit.booking-stream.events", "result", "sent");
+        this.overflowCounter = meterRegistry.counter("shareit.booking-stream.events", "result", "overflow");
+        Gauge.builder("shareit.booking-stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Число открытых потоков событий бронирований")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        // не через JPA: сессия open-in-view держала бы соединение из пула, пока открыт поток
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) > 0 FROM users WHERE id = ? AND deleted = FALSE", Boolean.class, userId);
+        if (!Boolean.TRUE.equals(exists)) {
+            throw new NotFoundException("Пользователь с id:" + userId + " не найден");
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new ServiceUnavailableException("Превышено число подписок на события бронирований");
+        }
+
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(timeoutMillis));
+        boolean[] added = new boolean[1];
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            Set<Subscriber> result = userSubscribers != null ? userSubscribers : ConcurrentHashMap.newKeySet();
+            if (result.size() < maxPerUser) {
+                added[0] = result.add(subscriber);
+            }
+            return result.isEmpty() ? null : result;
+        });
+        if (!added[0]) {
+            subscriberCount.decrementAndGet();
+            throw new ServiceUnavailableException("Превышено число подписок пользователя с id " + userId);
+        }
+
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> remove(subscriber));
+        // первый комментарий сразу отправляет клиенту заголовки ответа
+        subscriber.offer(CONNECTED);
+        log.info("Подписка пользователя с id: {} на события бронирований", userId);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(BookingStatusChangedEvent event) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        BookingEventDto payload = new BookingEventDto(event.getBookingId(), event.getItemId(),
+                event.getOwnerId(), event.getBookerId(), event.getNewStatus().name(),
+                event.getStart(), event.getEnd(), event.getOccurredAt());
+        Set<DataWithMediaType> data = SseEmitter.event()
+                .name(event.getOldStatus() == null ? "booking-created" : "booking-status-changed")
+                .data(payload)
+                .build();
+        publish(event.getOwnerId(), data);
+        publish(event.getBookerId(), data);
+    }
+
+    // комментарий раз в интервал держит соединение через прокси и выявляет отвалившихся клиентов
+    @Scheduled(fixedDelayString = "${shareit.booking-stream.heartbeat-interval:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber -> {
+            if (subscriber.buffer.isEmpty()) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(userSubscribers -> userSubscribers.forEach(subscriber ->
+                subscriber.emitter.complete()));
+        sender.shutdownNow();
+    }
+
+    private void publish(Long userId, Set<DataWithMediaType> data) {
+        Set<Subscriber> userSubscribers = subscribers.get(userId);
+        if (userSubscribers != null) {
+            userSubscribers.forEach(subscriber -> subscriber.offer(data));
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.userId, (id, userSubscribers) -> {
+            userSubscribers.remove(subscriber);
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<DataWithMediaType>> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<DataWithMediaType> data) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(data)) {
+                overflowCounter.increment();
+                log.warn("Клиент пользователя с id: {} не успевает читать события бронирований, подписка закрыта",
+                        userId);
+                remove(this);
+                emitter.complete();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        // в каждый момент отправкой подписчика занят не больше чем один поток
+        private void drain() {
+            do {
+                Set<DataWithMediaType> data;
+                while (!closed.get() && (data = buffer.poll()) != null) {
+                    try {
+                        emitter.send(data);
+                        if (data != CONNECTED && data != HEARTBEAT) {
+                            sentCounter.increment();
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        // клиент отключился: подписка снимается, ответ закрывается без ошибки
+                        remove(this);
+                        emitter.complete();
+                    }
+                }
+                draining.set(false);
+            } while (!closed.get() && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+    }
+}
@@ -2,11 +2,16 @@ package ru.practicum.shareit.exceptions;
 
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 
 import java.util.stream.Collectors;
 
@@ -15,10 +20,10 @@ import java.util.stream.Collectors;
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(NotFoundException.class)
-    @ResponseStatus(HttpStatus.NOT_FOUND)
-    public ErrorResponse handleNotFoundException(final NotFoundException e) {
+    public ResponseEntity<ErrorResponse> handleNotFoundException(final NotFoundException e,
+                                                                 NativeWebRequest request) {
         log.warn("Объект не найден: {}", e.getMessage(), e);
-        return new ErrorResponse(e.getMessage());
+        return error(HttpStatus.NOT_FOUND, e.getMessage(), request);
     }
 
     @ExceptionHandler(ValidationException.class)
@@ -35,6 +40,13 @@ public class GlobalExceptionHandler {
         return new ErrorResponse(e.getMessage());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleServiceUnavailableException(final ServiceUnavailableException e,
+                                                                           NativeWebRequest request) {
+        log.warn("Сервис временно недоступен: {}", e.getMessage());
+        return error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), request);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleIllegalArgumentException(final IllegalArgumentException e) {
@@ -53,13 +65,19 @@ public class GlobalExceptionHandler {
     }
 
     @ExceptionHandler(ConstraintViolationException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public ErrorResponse handleConstraintViolation(final ConstraintViolationException e) {
+    public ResponseEntity<ErrorResponse> handleConstraintViolation(final ConstraintViolationException e,
+                                                                   NativeWebRequest request) {
         String errorMessage = e.getConstraintViolations().stream()
                 .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
                 .collect(Collectors.joining("; "));
         log.warn("Ошибка валидации: {}", errorMessage, e);
-        return new ErrorResponse(errorMessage);
+        return error(HttpStatus.BAD_REQUEST, errorMessage, request);
+    }
+
+    // клиент закрыл соединение, например поток событий бронирований: ответ отправить уже некуда
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleAsyncRequestNotUsable(final AsyncRequestNotUsableException e) {
+        log.debug("Клиент закрыл соединение: {}", e.getMessage());
     }
 
     @ExceptionHandler
@@ -68,4 +86,15 @@ public class GlobalExceptionHandler {
         log.error("Внутренняя ошибка сервера: {}", e.getMessage(), e);
         return new ErrorResponse(e.getMessage());
     }
-}
\ No newline at end of file
+
+    // подписчик GET /bookings/stream принимает только text/event-stream, в который ErrorResponse не пишется:
+    // без явного типа ответа вместо кода ошибки ушёл бы 500. Заданный тип Spring не согласовывает с Accept
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, String message, NativeWebRequest request) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            response.contentType(MediaType.APPLICATION_JSON);
+        }
+        return response.body(new ErrorResponse(message));
+    }
+}
@@ -1,17 +1,30 @@
 package ru.practicum.shareit.item.controller;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CommentPageDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemFields;
+import ru.practicum.shareit.item.dto.ItemRelatedDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.dto.ItemUtilizationDto;
+import ru.practicum.shareit.item.dto.ItemViewsDto;
 import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.item.service.ItemSuggestionIndex;
+import ru.practicum.shareit.item.service.ItemViewCounter;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -21,6 +34,8 @@ import java.util.stream.Collectors;
 @Validated
 public class ItemController {
     private final ItemService itemService;
+    private final ItemViewCounter itemViewCounter;
+    private final ItemSuggestionIndex itemSuggestionIndex;
 
     @PostMapping
     public ItemDto createItem(
@@ -45,7 +60,7 @@ public class ItemController {
     @PostMapping("/{itemId}/comment")
     public CommentDto addComment(
             @PathVariable @Positive Long itemId,
-            @RequestBody CommentDto commentDto,
+            @RequestBody @Valid CommentDto commentDto,
             @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
         return itemService.addComment(userId, itemId, commentDto);
     }
@@ -53,24 +68,84 @@ public class ItemController {
     @GetMapping("/{itemId}")
     public ItemWithCommentsAndBookingDto getItemById(
             @PathVariable @Positive Long itemId,
-            @RequestHeader(value = "X-Sharer-User-Id", required = false) Long userId) {
-        return itemService.getItemWithCommentsAndBookings(itemId, userId);
+            @RequestHeader(value = "X-Sharer-User-Id", required = false) Long userId,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "10") Integer commentsLimit) {
+        ItemWithCommentsAndBookingDto item = itemService.getItemWithCommentsAndBookings(itemId, userId,
+                ItemFields.of(fields, commentsLimit));
+        itemViewCounter.recordView(itemId);
+        return item;
+    }
+
+    @GetMapping("/{itemId}/comments")
+    public CommentPageDto getComments(
+            @PathVariable @Positive Long itemId,
+            @RequestParam(required = false) @Positive Long before,
+            @RequestParam(defaultValue = "10") Integer size) {
+        return itemService.getComments(itemId, before, size);
+    }
+
+    // часто бронируют вместе с этой вещью
+    @GetMapping("/{itemId}/related")
+    public List<ItemRelatedDto> getRelatedItems(
+            @PathVariable @Positive Long itemId,
+            @RequestParam(defaultValue = "10") @Positive @Max(20) Integer limit) {
+        return itemService.getRelated(itemId, limit);
+    }
+
+    @GetMapping("/popular")
+    public List<ItemViewsDto> getMostViewedItems(
+            @RequestParam(defaultValue = "10") @Positive @Max(100) Integer limit) {
+        return itemViewCounter.getMostViewed(limit);
+    }
+
+    // подсказки по началу любого слова названия, самые популярные вещи первыми
+    @GetMapping("/suggest")
+    public List<ItemSuggestionDto> suggestItems(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") @Positive @Max(10) Integer limit) {
+        return itemSuggestionIndex.suggest(prefix, limit).stream()
+                .map(ItemMapper::toSuggestionDto)
+                .collect(Collectors.toList());
+    }
+
+    @GetMapping("/stats")
+    public List<ItemUtilizationDto> getItemStats(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long ownerId,
+            @RequestParam(defaultValue = "0") Integer from,
+            @RequestParam(defaultValue = "10") Integer size) {
+        return itemService.getUtilizationByOwner(ownerId, from, size);
     }
 
     @GetMapping
     public List<ItemWithCommentsAndBookingDto> getAllItemsByOwner(
             @RequestHeader("X-Sharer-User-Id") @Positive Long ownerId,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size) {
-        return itemService.getItemsWithCommentsAndBookingsByOwner(ownerId, from, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "10") Integer commentsLimit) {
+        return itemService.getItemsWithCommentsAndBookingsByOwner(ownerId, from, size,
+                ItemFields.of(fields, commentsLimit));
+    }
+
+    @GetMapping(params = "ids")
+    public ItemBatchDto getItemsByIds(
+            @RequestParam List<@Positive Long> ids,
+            @RequestHeader(value = "X-Sharer-User-Id", required = false) Long userId,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "10") Integer commentsLimit) {
+        return itemService.getItemsWithCommentsAndBookings(ids, userId, ItemFields.of(fields, commentsLimit));
     }
 
     @GetMapping("/search")
     public List<ItemDto> searchItems(
             @RequestParam String text,
             @RequestParam(defaultValue = "0") Integer from,
-            @RequestParam(defaultValue = "10") Integer size) {
-        List<Item> items = itemService.search(text, from, size);
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(defaultValue = "NONE") String sort,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        List<Item> items = itemService.search(text, from, size, ItemSearchSort.from(sort), start, end);
         return items.stream()
                 .map(ItemMapper::toDto)
                 .collect(Collectors.toList());
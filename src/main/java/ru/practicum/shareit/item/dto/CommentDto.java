@@ -1,5 +1,7 @@
 package ru.practicum.shareit.item.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,4 +18,7 @@ public class CommentDto {
     private String text;
     private String authorName;
     private LocalDateTime created;
+    @Min(value = 1, message = "Оценка должна быть от 1 до 5")
+    @Max(value = 5, message = "Оценка должна быть от 1 до 5")
+    private Integer rating;
 }
@@ -7,6 +7,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -22,4 +24,8 @@ public class ItemDto {
 
     private Long ownerId;
     private Long requestId;
+
+    private Long commentCount;
+    private LocalDateTime lastCommentAt;
+    private Double rating;
 }
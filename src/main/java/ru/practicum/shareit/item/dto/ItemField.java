@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum ItemField {
+    COMMENTS("comments"),
+    LAST_BOOKING("lastBooking"),
+    NEXT_BOOKING("nextBooking");
+
+    private final String paramName;
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.exceptions.ValidationException;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Набор необязательных полей вещи, которые нужно загрузить, и ограничение на число комментариев.
+ * Поля вещи (id, название, описание и т.д.) возвращаются всегда.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ItemFields {
+    public static final int DEFAULT_COMMENTS_LIMIT = 10;
+    public static final int MAX_COMMENTS_LIMIT = 100;
+
+    private final Set<ItemField> fields;
+    private final int commentsLimit;
+
+    private ItemFields(Set<ItemField> fields, int commentsLimit) {
+        this.fields = fields;
+        this.commentsLimit = commentsLimit;
+    }
+
+    public static ItemFields all() {
+        return new ItemFields(EnumSet.allOf(ItemField.class), DEFAULT_COMMENTS_LIMIT);
+    }
+
+    // fields == null означает все поля, пустая строка - только поля самой вещи
+    public static ItemFields of(String fields, int commentsLimit) {
+        if (commentsLimit <= 0 || commentsLimit > MAX_COMMENTS_LIMIT) {
+            throw new ValidationException("Параметр 'commentsLimit' должен быть от 1 до " + MAX_COMMENTS_LIMIT);
+        }
+        if (fields == null) {
+            return new ItemFields(EnumSet.allOf(ItemField.class), commentsLimit);
+        }
+
+        Set<ItemField> requested = EnumSet.noneOf(ItemField.class);
+        Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .forEach(name -> requested.add(parseField(name)));
+        return new ItemFields(requested, commentsLimit);
+    }
+
+    public boolean includes(ItemField field) {
+        return fields.contains(field);
+    }
+
+    public boolean includesBookings() {
+        return includes(ItemField.LAST_BOOKING) || includes(ItemField.NEXT_BOOKING);
+    }
+
+    private static ItemField parseField(String name) {
+        return Arrays.stream(ItemField.values())
+                .filter(field -> field.getParamName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new ValidationException("Неизвестное поле вещи: " + name));
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRelatedDto {
+    private Long id;
+    private String name;
+    private String description;
+    // сколько арендаторов бронировали эту вещь вместе с запрошенной
+    private Integer bookedTogether;
+}
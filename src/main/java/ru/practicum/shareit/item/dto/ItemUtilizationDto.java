@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemUtilizationDto {
+    private Long itemId;
+    private String name;
+    private long views;
+    private long bookings;
+    private long approved;
+    private long rejected;
+    // доля подтверждённых среди рассмотренных, null - ещё ничего не рассмотрено
+    private Double approvalRate;
+    // процент времени от первого до последнего подтверждённого бронирования, когда вещь была занята
+    private Double utilization;
+    private Double averageLeadTimeHours;
+}
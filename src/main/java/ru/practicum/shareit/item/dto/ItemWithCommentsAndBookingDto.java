@@ -6,10 +6,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ItemWithCommentsAndBookingDto {
@@ -20,6 +21,10 @@ public class ItemWithCommentsAndBookingDto {
     private BookingShortDto lastBooking;
     private BookingShortDto nextBooking;
     private List<CommentDto> comments;
+    private Long commentsCursor;
+    private Long commentCount;
+    private LocalDateTime lastCommentAt;
+    private Double rating;
     private Long ownerId;
     private Long requestId;
 }
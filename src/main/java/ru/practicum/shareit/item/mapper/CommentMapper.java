@@ -14,6 +14,7 @@ public class CommentMapper {
                 .text(comment.getText())
                 .authorName(comment.getAuthor().getName())
                 .created(comment.getCreated())
+                .rating(comment.getRating())
                 .build();
     }
 
@@ -21,6 +22,7 @@ public class CommentMapper {
         return Comment.builder()
                 .text(commentDto.getText())
                 .created(commentDto.getCreated() != null ? commentDto.getCreated() : LocalDateTime.now())
+                .rating(commentDto.getRating())
                 .build();
     }
 }
@@ -3,12 +3,19 @@ package ru.practicum.shareit.item.mapper;
 import lombok.experimental.UtilityClass;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CommentPageDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemRelatedDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.dto.ItemUtilizationDto;
 import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemBookingStats;
+import ru.practicum.shareit.item.model.ItemSuggestion;
 import ru.practicum.shareit.user.model.User;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.stream.Collectors;
 
 @UtilityClass
 public class ItemMapper {
@@ -21,7 +28,10 @@ public class ItemMapper {
                 item.getDescription(),
                 item.getAvailable(),
                 item.getOwner() != null ? item.getOwner().getId() : null,
-                item.getRequestId()
+                item.getRequestId(),
+                item.getCommentCount(),
+                item.getLastCommentAt(),
+                item.getRating()
         );
     }
 
@@ -53,7 +63,7 @@ public class ItemMapper {
 
     public static ItemWithCommentsAndBookingDto toItemWithCommentsAndBookingDto(
             Item item,
-            List<CommentDto> comments,
+            CommentPageDto comments,
             BookingShortDto lastBooking,
             BookingShortDto nextBooking) {
 
@@ -66,9 +76,73 @@ public class ItemMapper {
                 .available(item.getAvailable())
                 .ownerId(item.getOwner() != null ? item.getOwner().getId() : null)
                 .requestId(item.getRequestId())
-                .comments(comments)
+                .comments(comments != null ? comments.getComments() : null)
+                .commentsCursor(comments != null ? comments.getNextCursor() : null)
+                .commentCount(item.getCommentCount())
+                .lastCommentAt(item.getLastCommentAt())
+                .rating(item.getRating())
                 .lastBooking(lastBooking)
                 .nextBooking(nextBooking)
                 .build();
     }
-}
\ No newline at end of file
+
+    // глубокая копия: DTO изменяемые, а одна загруженная карточка отдаётся нескольким запросам
+    public static ItemWithCommentsAndBookingDto copyOf(ItemWithCommentsAndBookingDto dto) {
+        if (dto == null) return null;
+
+        return dto.toBuilder()
+                .comments(dto.getComments() != null
+                        ? dto.getComments().stream().map(ItemMapper::copyOf).collect(Collectors.toList())
+                        : null)
+                .lastBooking(copyOf(dto.getLastBooking()))
+                .nextBooking(copyOf(dto.getNextBooking()))
+                .build();
+    }
+
+    private static CommentDto copyOf(CommentDto comment) {
+        return new CommentDto(comment.getId(), comment.getText(), comment.getAuthorName(), comment.getCreated(),
+                comment.getRating());
+    }
+
+    private static BookingShortDto copyOf(BookingShortDto booking) {
+        if (booking == null) return null;
+
+        return new BookingShortDto(booking.getId(), booking.getBookerId(), booking.getItemId(), booking.getStart(),
+                booking.getEnd());
+    }
+
+    public static ItemUtilizationDto toUtilizationDto(Long itemId, String name, long views, ItemBookingStats stats) {
+        long decided = stats.getApprovedCount() + stats.getRejectedCount();
+        Double approvalRate = decided > 0 ? (double) stats.getApprovedCount() / decided : null;
+
+        Double utilization = null;
+        if (stats.getFirstStart() != null && stats.getLastEnd() != null) {
+            long span = Duration.between(stats.getFirstStart(), stats.getLastEnd()).getSeconds();
+            utilization = span > 0 ? Math.min(100.0, 100.0 * stats.getApprovedSeconds() / span) : null;
+        }
+
+        Double averageLeadTimeHours = stats.getBookingCount() > 0
+                ? stats.getLeadTimeSeconds() / 3600.0 / stats.getBookingCount()
+                : null;
+
+        return new ItemUtilizationDto(
+                itemId,
+                name,
+                views,
+                stats.getBookingCount(),
+                stats.getApprovedCount(),
+                stats.getRejectedCount(),
+                approvalRate,
+                utilization,
+                averageLeadTimeHours
+        );
+    }
+
+    public static ItemSuggestionDto toSuggestionDto(ItemSuggestion suggestion) {
+        return new ItemSuggestionDto(suggestion.id(), suggestion.name());
+    }
+
+    public static ItemRelatedDto toRelatedDto(Item item, int bookedTogether) {
+        return new ItemRelatedDto(item.getId(), item.getName(), item.getDescription(), bookedTogether);
+    }
+}
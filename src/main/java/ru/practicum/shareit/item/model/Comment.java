@@ -33,6 +33,8 @@ public class Comment {
     @Column(nullable = false)
     private LocalDateTime created;
 
+    private Integer rating;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -2,12 +2,16 @@ package ru.practicum.shareit.item.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 import ru.practicum.shareit.user.model.User;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Objects;
 
 @Entity
 @Table(name = "items")
+@SQLRestriction("deleted = false")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -33,6 +37,42 @@ public class Item {
     @Column(name = "request_id")
     private Long requestId;
 
+    // мягкое удаление: строка скрыта из запросов и позже удаляется фоновой очисткой
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // агрегаты по комментариям обновляются отдельными запросами, сущность их не пишет
+    @Column(name = "comment_count", insertable = false, updatable = false)
+    private Long commentCount = 0L;
+
+    @Column(name = "last_comment_at", insertable = false, updatable = false)
+    private LocalDateTime lastCommentAt;
+
+    @Column(name = "rating_sum", insertable = false, updatable = false)
+    private Long ratingSum = 0L;
+
+    @Column(name = "rating_count", insertable = false, updatable = false)
+    private Long ratingCount = 0L;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (createdAt == null) {
+            createdAt = updatedAt;
+        }
+    }
+
+    public Double getRating() {
+        return ratingCount != null && ratingCount > 0 ? (double) ratingSum / ratingCount : null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// счётчики бронирований вещи из item_stats; длительности в секундах
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemBookingStats {
+    private long itemId;
+    private long bookingCount;
+    private long approvedCount;
+    private long rejectedCount;
+    private long approvedSeconds;
+    private long leadTimeSeconds;
+    private LocalDateTime firstStart;
+    private LocalDateTime lastEnd;
+
+    public static ItemBookingStats empty(long itemId) {
+        return new ItemBookingStats(itemId, 0, 0, 0, 0, 0, null, null);
+    }
+}
@@ -0,0 +1,5 @@
+package ru.practicum.shareit.item.model;
+
+// сосед вещи по совместным бронированиям: score - число арендаторов, бронировавших обе вещи рядом по времени
+public record ItemRelated(Long itemId, Long relatedItemId, int score) {
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.item.model;
+
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.exceptions.ValidationException;
+
+import java.util.Comparator;
+
+public enum ItemSearchSort {
+    NONE,
+    POPULARITY;
+
+    public static ItemSearchSort from(String value) {
+        try {
+            return valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Неизвестный вид сортировки: " + value);
+        }
+    }
+
+    // популярность считается по денормализованным агрегатам вещи, без подсчёта комментариев
+    public Sort toSort() {
+        return switch (this) {
+            case NONE -> Sort.unsorted();
+            case POPULARITY -> Sort.by(Sort.Order.desc("commentCount"),
+                    Sort.Order.desc("ratingSum"),
+                    Sort.Order.asc("id"));
+        };
+    }
+
+    // тот же порядок в памяти, для слияния результатов нескольких шардов; без сортировки шарды отдают вещи по id
+    public Comparator<Item> toComparator() {
+        return switch (this) {
+            case NONE -> Comparator.comparing(Item::getId);
+            case POPULARITY -> Comparator.comparing(Item::getCommentCount, Comparator.reverseOrder())
+                    .thenComparing(Item::getRatingSum, Comparator.reverseOrder())
+                    .thenComparing(Item::getId);
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.item.model;
+
+import java.util.Comparator;
+
+// вещь в индексе подсказок: название и агрегаты, по которым считается популярность
+public record ItemSuggestion(Long id, String name, Long commentCount, Long ratingSum) {
+    // тот же порядок, что у поиска с sort=POPULARITY
+    public static final Comparator<ItemSuggestion> BY_POPULARITY =
+            Comparator.comparing(ItemSuggestion::commentCount, Comparator.reverseOrder())
+                    .thenComparing(ItemSuggestion::ratingSum, Comparator.reverseOrder())
+                    .thenComparing(ItemSuggestion::id);
+
+    public static ItemSuggestion of(Item item) {
+        return new ItemSuggestion(item.getId(), item.getName(), item.getCommentCount(), item.getRatingSum());
+    }
+}
@@ -1,9 +1,14 @@
 package ru.practicum.shareit.item.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
@@ -12,5 +17,37 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> findByItemId(Long itemId);
 
-    List<Comment> findByItemIdIn(List<Long> itemIds);
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByItemIdIn(Collection<Long> itemIds);
+
+    @EntityGraph(attributePaths = "author")
+    List<Comment> findByIdInOrderByIdDesc(Collection<Long> ids);
+
+    // комментарии удалённых (ещё не вычищенных) пользователей не показываются
+    @EntityGraph(attributePaths = "author")
+    @Query("SELECT c FROM Comment c " +
+            "WHERE c.item.id = :itemId " +
+            "AND c.author.deleted = false " +
+            "ORDER BY c.id DESC")
+    List<Comment> findByItemIdOrderByIdDesc(@Param("itemId") Long itemId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "author")
+    @Query("SELECT c FROM Comment c " +
+            "WHERE c.item.id = :itemId " +
+            "AND c.id < :id " +
+            "AND c.author.deleted = false " +
+            "ORDER BY c.id DESC")
+    List<Comment> findByItemIdAndIdLessThanOrderByIdDesc(@Param("itemId") Long itemId, @Param("id") Long id,
+                                                         Pageable pageable);
+
+    // вещи, у которых есть комментарии автора: их агрегаты пересчитываются при его удалении
+    @Query("SELECT DISTINCT c.item.id FROM Comment c WHERE c.author.id = :authorId")
+    List<Long> findItemIdsByAuthorId(@Param("authorId") Long authorId);
+
+    @Query(value = "SELECT t.id FROM (" +
+            "SELECT c.id, ROW_NUMBER() OVER (PARTITION BY c.item_id ORDER BY c.id DESC) AS rn " +
+            "FROM comments c JOIN users u ON u.id = c.author_id " +
+            "WHERE c.item_id IN (:itemIds) AND u.deleted = FALSE) t " +
+            "WHERE t.rn <= :limit", nativeQuery = true)
+    List<Long> findLatestIdsByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("limit") int limit);
 }
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.item.repository;
+
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.Optional;
+
+public interface ItemPartialUpdateRepository {
+
+    // одним запросом меняет только переданные (не null) поля, если вещь принадлежит ownerId, и возвращает
+    // строку после записи; без полей - просто читает её с тем же условием. Пусто - вещи нет или она чужая
+    Optional<Item> updateFields(Long itemId, Long ownerId, String name, String description, Boolean available);
+}
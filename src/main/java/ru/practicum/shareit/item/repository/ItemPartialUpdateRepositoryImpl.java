@@ -0,0 +1,83 @@
+package ru.practicum.shareit.item.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.practicum.shareit.item.model.Item;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+// изменённая строка возвращается тем же запросом: UPDATE ... RETURNING в Postgres,
+// SELECT ... FROM FINAL TABLE (UPDATE ...) в H2, где RETURNING нет.
+// Текст запроса собирается из переданных полей: вариантов немного, и каждый попадает в кэш планов.
+// Запрос идёт мимо @PreUpdate, поэтому updated_at выставляется здесь
+public class ItemPartialUpdateRepositoryImpl implements ItemPartialUpdateRepository {
+    private static final String CONDITION = " WHERE id = :itemId AND owner_id = :ownerId AND deleted = false";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean returningSupported;
+
+    @Transactional
+    @Override
+    public Optional<Item> updateFields(Long itemId, Long ownerId, String name, String description,
+                                       Boolean available) {
+        boolean changed = name != null || description != null || available != null;
+        String sql;
+        if (!changed) {
+            sql = "SELECT * FROM items" + CONDITION;
+        } else {
+            StringBuilder update = new StringBuilder("UPDATE items SET ");
+            if (name != null) {
+                update.append("name = :name, ");
+            }
+            if (description != null) {
+                update.append("description = :description, ");
+            }
+            if (available != null) {
+                update.append("available = :available, ");
+            }
+            update.append("updated_at = :updatedAt").append(CONDITION);
+            sql = isReturningSupported()
+                    ? update.append(" RETURNING *").toString()
+                    : "SELECT * FROM FINAL TABLE (" + update + ")";
+        }
+
+        Query query = entityManager.createNativeQuery(sql, Item.class)
+                .setParameter("itemId", itemId)
+                .setParameter("ownerId", ownerId);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        if (description != null) {
+            query.setParameter("description", description);
+        }
+        if (available != null) {
+            query.setParameter("available", available);
+        }
+        if (changed) {
+            query.setParameter("updatedAt", Timestamp.valueOf(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS)));
+        }
+        @SuppressWarnings("unchecked")
+        List<Item> items = query.getResultList();
+        return items.stream().findFirst();
+    }
+
+    private boolean isReturningSupported() {
+        Boolean supported = returningSupported;
+        if (supported == null) {
+            supported = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            returningSupported = supported;
+        }
+        return supported;
+    }
+}
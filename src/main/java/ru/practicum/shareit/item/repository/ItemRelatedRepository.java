@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.ItemRelated;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class ItemRelatedRepository {
+    // строки для удалённых вещей не создаются: источник MERGE пуст, если вещи уже нет
+    private static final String UPSERT_SQL =
+            "MERGE INTO item_related r " +
+            "USING (SELECT i.id AS item_id, CAST(? AS BIGINT) AS related_item_id, CAST(? AS INT) AS score, " +
+            "CAST(? AS TIMESTAMP) AS computed_at FROM items i WHERE i.id = ? AND i.deleted = FALSE) v " +
+            "ON r.item_id = v.item_id AND r.related_item_id = v.related_item_id " +
+            "WHEN MATCHED THEN UPDATE SET score = v.score, computed_at = v.computed_at " +
+            "WHEN NOT MATCHED THEN INSERT (item_id, related_item_id, score, computed_at) " +
+            "VALUES (v.item_id, v.related_item_id, v.score, v.computed_at)";
+
+    private static final String APPROVED_BOOKINGS_SQL =
+            "SELECT b.booker_id, b.item_id, b.start_date, b.end_date FROM bookings b " +
+            "JOIN items i ON i.id = b.item_id AND i.deleted = FALSE " +
+            "WHERE b.status = ? AND b.end_date >= ? " +
+            "ORDER BY b.booker_id, b.start_date";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ItemRelatedRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // строки читаются по одной, без списка сущностей: бронирований может быть много.
+    // Драйвер Postgres отдаёт их порциями по fetch size только вне autocommit, иначе читает всю выборку в память
+    public void forEachApprovedBooking(LocalDateTime endAfter, ApprovedBookingHandler handler) {
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(APPROVED_BOOKINGS_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setString(1, BookingStatus.APPROVED.name());
+            statement.setTimestamp(2, Timestamp.valueOf(endAfter));
+            return statement;
+        }, rs -> {
+            handler.accept(rs.getLong("booker_id"), rs.getLong("item_id"),
+                    rs.getTimestamp("start_date").toLocalDateTime(),
+                    rs.getTimestamp("end_date").toLocalDateTime());
+        }));
+    }
+
+    public void upsert(Collection<ItemRelated> related, LocalDateTime computedAt) {
+        List<Object[]> args = new ArrayList<>(related.size());
+        Timestamp at = Timestamp.valueOf(computedAt);
+        for (ItemRelated row : related) {
+            args.add(new Object[]{row.relatedItemId(), row.score(), at, row.itemId()});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+    }
+
+    // соседи, не попавшие в новый расчёт
+    public int deleteComputedBefore(LocalDateTime computedAt) {
+        return jdbcTemplate.update("DELETE FROM item_related WHERE computed_at < ?", Timestamp.valueOf(computedAt));
+    }
+
+    // у вещи не больше top-size соседей, выборка идёт по первичному ключу
+    public List<ItemRelated> findByItemId(Long itemId) {
+        return jdbcTemplate.query("SELECT item_id, related_item_id, score FROM item_related " +
+                        "WHERE item_id = ? ORDER BY score DESC, related_item_id",
+                (rs, rowNum) -> new ItemRelated(rs.getLong("item_id"), rs.getLong("related_item_id"),
+                        rs.getInt("score")),
+                itemId);
+    }
+
+    @FunctionalInterface
+    public interface ApprovedBookingHandler {
+        void accept(long bookerId, long itemId, LocalDateTime start, LocalDateTime end);
+    }
+}
@@ -1,13 +1,21 @@
 package ru.practicum.shareit.item.repository;
 
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSuggestion;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemPartialUpdateRepository {
+    String VISIBLE_COMMENTS = "FROM comments c JOIN users u ON u.id = c.author_id AND u.deleted = FALSE " +
+            "WHERE c.item_id = i.id";
 
     List<Item> findByOwnerId(Long ownerId, Pageable pageable);
 
@@ -17,7 +25,74 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
             "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%')))")
     List<Item> findAvailableItemsByText(String text, Pageable pageable);
 
-    List<Item> findAllByRequestId(Long requestId);
+    // анти-join по idx_bookings_item_status_dates: нет подтверждённой брони, пересекающей [start, end)
+    @Query("SELECT i FROM Item i " +
+            "WHERE i.available = true " +
+            "AND (LOWER(i.name) LIKE LOWER(CONCAT('%', :text, '%')) " +
+            "OR LOWER(i.description) LIKE LOWER(CONCAT('%', :text, '%'))) " +
+            "AND NOT EXISTS (SELECT 1 FROM Booking b " +
+            "WHERE b.item.id = i.id " +
+            "AND b.status = 'APPROVED' " +
+            "AND b.start < :end " +
+            "AND b.end > :start " +
+            "AND b.booker.deleted = false)")
+    List<Item> findAvailableItemsByTextAndPeriod(@Param("text") String text,
+                                                 @Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end,
+                                                 Pageable pageable);
+
+    // ответы сразу на всю страницу запросов вещей, по индексу items(request_id)
+    List<Item> findAllByRequestIdInOrderById(Collection<Long> requestIds);
 
     boolean existsByOwnerId(Long ownerId);
+
+    @Modifying
+    @Query("UPDATE Item i SET i.commentCount = i.commentCount + 1, " +
+            "i.lastCommentAt = CASE WHEN i.lastCommentAt IS NULL OR i.lastCommentAt < :created " +
+            "THEN :created ELSE i.lastCommentAt END, " +
+            "i.ratingSum = i.ratingSum + :rating, " +
+            "i.ratingCount = i.ratingCount + :rated, " +
+            "i.updatedAt = LOCAL DATETIME " +
+            "WHERE i.id = :itemId")
+    int addCommentToAggregates(@Param("itemId") Long itemId,
+                               @Param("created") LocalDateTime created,
+                               @Param("rating") long rating,
+                               @Param("rated") long rated);
+
+    // граница диапазонов для пакетных обходов; без фильтра deleted = false максимум берётся из первичного ключа
+    @Query(value = "SELECT MAX(id) FROM items", nativeQuery = true)
+    Long findMaxId();
+
+    // для индекса подсказок: только доступные вещи и только нужные ему поля
+    @Query("SELECT new ru.practicum.shareit.item.model.ItemSuggestion(i.id, i.name, i.commentCount, i.ratingSum) " +
+            "FROM Item i " +
+            "WHERE i.available = true " +
+            "AND i.id BETWEEN :fromId AND :toId")
+    List<ItemSuggestion> findSuggestions(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    // пересчёт агрегатов по комментариям для вещей из диапазона id, трогает только разошедшиеся строки.
+    // Комментарии удалённых пользователей не считаются, как и не показываются
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE items i SET " +
+            "comment_count = (SELECT COUNT(*) " + VISIBLE_COMMENTS + "), " +
+            "last_comment_at = (SELECT MAX(c.created) " + VISIBLE_COMMENTS + "), " +
+            "rating_sum = (SELECT COALESCE(SUM(c.rating), 0) " + VISIBLE_COMMENTS + "), " +
+            "rating_count = (SELECT COUNT(c.rating) " + VISIBLE_COMMENTS + "), " +
+            "updated_at = LOCALTIMESTAMP " +
+            "WHERE i.id BETWEEN :fromId AND :toId " +
+            "AND (i.comment_count <> (SELECT COUNT(*) " + VISIBLE_COMMENTS + ") " +
+            "OR i.last_comment_at IS DISTINCT FROM (SELECT MAX(c.created) " + VISIBLE_COMMENTS + ") " +
+            "OR i.rating_sum <> (SELECT COALESCE(SUM(c.rating), 0) " + VISIBLE_COMMENTS + ") " +
+            "OR i.rating_count <> (SELECT COUNT(c.rating) " + VISIBLE_COMMENTS + "))",
+            nativeQuery = true)
+    int reconcileCommentAggregates(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Modifying
+    @Query(value = "UPDATE items SET deleted = TRUE, updated_at = LOCALTIMESTAMP WHERE id = :itemId", nativeQuery = true)
+    int markDeleted(@Param("itemId") Long itemId);
+
+    @Modifying
+    @Query(value = "UPDATE items SET deleted = TRUE, updated_at = LOCALTIMESTAMP WHERE owner_id = :ownerId", nativeQuery = true)
+    int markDeletedByOwnerId(@Param("ownerId") Long ownerId);
 }
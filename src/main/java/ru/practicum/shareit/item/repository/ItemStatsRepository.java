@@ -0,0 +1,160 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.dto.ItemUtilizationDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.ItemBookingStats;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemStatsRepository {
+    // строки для удалённых вещей не создаются: источник MERGE пуст, если вещи уже нет
+    private static final String UPSERT_VIEWS_SQL =
+            "MERGE INTO item_stats s " +
+            "USING (SELECT i.id AS item_id, CAST(? AS BIGINT) AS delta FROM items i WHERE i.id = ?) v " +
+            "ON s.item_id = v.item_id " +
+            "WHEN MATCHED THEN UPDATE SET view_count = s.view_count + v.delta " +
+            "WHEN NOT MATCHED THEN INSERT (item_id, view_count) VALUES (v.item_id, v.delta)";
+
+    private static final String ADD_BOOKING_SQL =
+            "MERGE INTO item_stats s " +
+            "USING (SELECT i.id AS item_id, CAST(? AS BIGINT) AS lead_seconds FROM items i WHERE i.id = ?) v " +
+            "ON s.item_id = v.item_id " +
+            "WHEN MATCHED THEN UPDATE SET booking_count = s.booking_count + 1, " +
+            "lead_time_seconds = s.lead_time_seconds + v.lead_seconds " +
+            "WHEN NOT MATCHED THEN INSERT (item_id, booking_count, lead_time_seconds) " +
+            "VALUES (v.item_id, 1, v.lead_seconds)";
+
+    private static final String ADD_APPROVED_SQL =
+            "MERGE INTO item_stats s " +
+            "USING (SELECT i.id AS item_id, CAST(? AS BIGINT) AS booked_seconds, " +
+            "CAST(? AS TIMESTAMP) AS start_date, CAST(? AS TIMESTAMP) AS end_date FROM items i WHERE i.id = ?) v " +
+            "ON s.item_id = v.item_id " +
+            "WHEN MATCHED THEN UPDATE SET approved_count = s.approved_count + 1, " +
+            "approved_seconds = s.approved_seconds + v.booked_seconds, " +
+            "first_start = LEAST(COALESCE(s.first_start, v.start_date), v.start_date), " +
+            "last_end = GREATEST(COALESCE(s.last_end, v.end_date), v.end_date) " +
+            "WHEN NOT MATCHED THEN INSERT (item_id, approved_count, approved_seconds, first_start, last_end) " +
+            "VALUES (v.item_id, 1, v.booked_seconds, v.start_date, v.end_date)";
+
+    private static final String ADD_REJECTED_SQL =
+            "MERGE INTO item_stats s " +
+            "USING (SELECT i.id AS item_id FROM items i WHERE i.id = ?) v " +
+            "ON s.item_id = v.item_id " +
+            "WHEN MATCHED THEN UPDATE SET rejected_count = s.rejected_count + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (item_id, rejected_count) VALUES (v.item_id, 1)";
+
+    // пересчёт по таблице bookings одним оператором: строки item_stats блокируются на время пересчёта,
+    // и инкремент из ItemStatsUpdater не может попасть между чтением и записью.
+    // Длительности - целые секунды с округлением вниз, как Duration.getSeconds при инкрементальном обновлении
+    private static final String RECOMPUTE_BOOKING_STATS_SQL =
+            "MERGE INTO item_stats s " +
+            "USING (SELECT i.id AS item_id, COUNT(b.id) AS booking_count, " +
+            "COUNT(CASE WHEN b.status = 'APPROVED' THEN 1 END) AS approved_count, " +
+            "COUNT(CASE WHEN b.status = 'REJECTED' THEN 1 END) AS rejected_count, " +
+            "CAST(COALESCE(SUM(CASE WHEN b.status = 'APPROVED' " +
+            "THEN FLOOR(EXTRACT(EPOCH FROM (b.end_date - b.start_date))) END), 0) AS BIGINT) AS approved_seconds, " +
+            "CAST(COALESCE(SUM(GREATEST(0, FLOOR(EXTRACT(EPOCH FROM (b.start_date - b.created_at))))), 0) " +
+            "AS BIGINT) AS lead_time_seconds, " +
+            "MIN(CASE WHEN b.status = 'APPROVED' THEN b.start_date END) AS first_start, " +
+            "MAX(CASE WHEN b.status = 'APPROVED' THEN b.end_date END) AS last_end " +
+            "FROM items i LEFT JOIN bookings b ON b.item_id = i.id " +
+            "WHERE i.id BETWEEN ? AND ? GROUP BY i.id) v " +
+            "ON s.item_id = v.item_id " +
+            "WHEN MATCHED AND (s.booking_count <> v.booking_count OR s.approved_count <> v.approved_count " +
+            "OR s.rejected_count <> v.rejected_count OR s.approved_seconds <> v.approved_seconds " +
+            "OR s.lead_time_seconds <> v.lead_time_seconds OR s.first_start IS DISTINCT FROM v.first_start " +
+            "OR s.last_end IS DISTINCT FROM v.last_end) " +
+            "THEN UPDATE SET booking_count = v.booking_count, approved_count = v.approved_count, " +
+            "rejected_count = v.rejected_count, approved_seconds = v.approved_seconds, " +
+            "lead_time_seconds = v.lead_time_seconds, first_start = v.first_start, last_end = v.last_end " +
+            "WHEN NOT MATCHED AND v.booking_count > 0 THEN INSERT (item_id, booking_count, approved_count, " +
+            "rejected_count, approved_seconds, lead_time_seconds, first_start, last_end) " +
+            "VALUES (v.item_id, v.booking_count, v.approved_count, v.rejected_count, " +
+            "v.approved_seconds, v.lead_time_seconds, v.first_start, v.last_end)";
+
+    private static final String BOOKING_STATS_COLUMNS =
+            "s.item_id, s.booking_count, s.approved_count, s.rejected_count, " +
+            "s.approved_seconds, s.lead_time_seconds, s.first_start, s.last_end";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void addViews(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = deltas.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList();
+        jdbcTemplate.batchUpdate(UPSERT_VIEWS_SQL, args);
+    }
+
+    public Map<Long, Long> findAllViews() {
+        Map<Long, Long> views = new HashMap<>();
+        jdbcTemplate.query("SELECT item_id, view_count FROM item_stats WHERE view_count > 0",
+                rs -> {
+                    views.put(rs.getLong("item_id"), rs.getLong("view_count"));
+                });
+        return views;
+    }
+
+    public void addBooking(Long itemId, long leadSeconds) {
+        jdbcTemplate.update(ADD_BOOKING_SQL, leadSeconds, itemId);
+    }
+
+    public void addApproved(Long itemId, LocalDateTime start, LocalDateTime end) {
+        jdbcTemplate.update(ADD_APPROVED_SQL, Duration.between(start, end).getSeconds(),
+                Timestamp.valueOf(start), Timestamp.valueOf(end), itemId);
+    }
+
+    public void addRejected(Long itemId) {
+        jdbcTemplate.update(ADD_REJECTED_SQL, itemId);
+    }
+
+    public List<ItemUtilizationDto> findUtilizationByOwner(Long ownerId, int from, int size) {
+        return jdbcTemplate.query("SELECT i.id, i.name, COALESCE(s.view_count, 0) AS view_count, " +
+                        BOOKING_STATS_COLUMNS + " " +
+                        "FROM items i LEFT JOIN item_stats s ON s.item_id = i.id " +
+                        "WHERE i.owner_id = ? AND i.deleted = FALSE ORDER BY i.id LIMIT ? OFFSET ?",
+                (rs, rowNum) -> ItemMapper.toUtilizationDto(rs.getLong("id"), rs.getString("name"),
+                        rs.getLong("view_count"),
+                        rs.getObject("item_id") != null ? toBookingStats(rs) : ItemBookingStats.empty(rs.getLong("id"))),
+                ownerId, size, from);
+    }
+
+    // число исправленных строк item_stats
+    public int recomputeBookingStats(long fromItemId, long toItemId) {
+        return jdbcTemplate.update(RECOMPUTE_BOOKING_STATS_SQL, fromItemId, toItemId);
+    }
+
+    // время от создания брони до её начала, не меньше нуля
+    public static long leadSeconds(LocalDateTime created, LocalDateTime start) {
+        return Math.max(0, Duration.between(created, start).getSeconds());
+    }
+
+    private static ItemBookingStats toBookingStats(ResultSet rs) throws SQLException {
+        Timestamp firstStart = rs.getTimestamp("first_start");
+        Timestamp lastEnd = rs.getTimestamp("last_end");
+        return new ItemBookingStats(
+                rs.getLong("item_id"),
+                rs.getLong("booking_count"),
+                rs.getLong("approved_count"),
+                rs.getLong("rejected_count"),
+                rs.getLong("approved_seconds"),
+                rs.getLong("lead_time_seconds"),
+                firstStart != null ? firstStart.toLocalDateTime() : null,
+                lastEnd != null ? lastEnd.toLocalDateTime() : null
+        );
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+/**
+ * Фоновая сверка агрегатов по комментариям (число, дата последнего, рейтинг) с таблицей comments.
+ * Проходит вещи диапазонами id, каждый диапазон - отдельная короткая транзакция.
+ */
+@Slf4j
+@Component
+public class ItemAggregatesReconciler {
+    private final ItemRepository itemRepository;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+
+    public ItemAggregatesReconciler(ItemRepository itemRepository,
+                                    ShardRouter shardRouter,
+                                    @Value("${shareit.item-aggregates.reconcile-chunk-size:1000}") int chunkSize) {
+        this.itemRepository = itemRepository;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${shareit.item-aggregates.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        shardRouter.forEachShard(this::reconcileShard);
+    }
+
+    private void reconcileShard() {
+        Long maxId = itemRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+
+        int repaired = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            repaired += itemRepository.reconcileCommentAggregates(fromId, fromId + chunkSize - 1);
+        }
+
+        if (repaired > 0) {
+            log.warn("Исправлены агрегаты по комментариям у {} вещей", repaired);
+        } else {
+            log.info("Агрегаты по комментариям согласованы");
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.ItemRelated;
+import ru.practicum.shareit.item.repository.ItemRelatedRepository;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Пересчёт "часто бронируют вместе". Две вещи связаны, если один арендатор бронировал их
+ * с пересекающимися или соседними (не дальше adjacency) периодами; сила связи - число таких арендаторов.
+ * <p>
+ * Одобренные бронирования читаются со всех шардов в примитивные массивы, упорядоченные по арендатору и началу.
+ * Пары считаются в ForkJoinPool по диапазонам арендаторов, id вещей заменены плотными номерами,
+ * пара упакована в один long. Для каждой вещи сохраняются top-size соседей в item_related на шарде этой вещи;
+ * соседи из прошлого расчёта, не попавшие в новый, удаляются.
+ */
+@Slf4j
+@Component
+public class ItemRelatedRecomputer {
+    private final ItemRelatedRepository itemRelatedRepository;
+    private final ShardRouter shardRouter;
+    private final int topSize;
+    private final int minScore;
+    private final long adjacencySeconds;
+    private final Duration lookback;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public ItemRelatedRecomputer(ItemRelatedRepository itemRelatedRepository,
+                                 ShardRouter shardRouter,
+                                 @Value("${shareit.item-related.top-size:20}") int topSize,
+                                 @Value("${shareit.item-related.min-score:1}") int minScore,
+                                 @Value("${shareit.item-related.adjacency:1d}") Duration adjacency,
+                                 @Value("${shareit.item-related.lookback:365d}") Duration lookback,
+                                 @Value("${shareit.item-related.recompute-chunk-size:10000}") int chunkSize,
+                                 @Value("${shareit.item-related.recompute-parallelism:4}") int parallelism) {
+        this.itemRelatedRepository = itemRelatedRepository;
+        this.shardRouter = shardRouter;
+        this.topSize = topSize;
+        this.minScore = minScore;
+        this.adjacencySeconds = adjacency.getSeconds();
+        this.lookback = lookback;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Scheduled(cron = "${shareit.item-related.recompute-cron:0 30 3 * * *}")
+    public void recompute() {
+        long startedAt = System.nanoTime();
+        LocalDateTime computedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        LocalDateTime endAfter = computedAt.minus(lookback);
+
+        List<Spans> shardSpans = new ArrayList<>();
+        shardRouter.forEachShard(() -> {
+            Spans spans = new Spans();
+            itemRelatedRepository.forEachApprovedBooking(endAfter, spans::add);
+            shardSpans.add(spans);
+        });
+        Spans spans = Spans.merge(shardSpans);
+        long[] itemIds = spans.indexItems();
+
+        LongIntCounter pairs;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pairs = pool.invoke(new PairTask(spans, 0, spans.size));
+        } finally {
+            pool.shutdown();
+        }
+
+        List<ItemRelated> related = topNeighbours(itemIds, pairs);
+        save(related, computedAt);
+        log.info("Пересчитаны похожие вещи: {} бронирований, {} пар, {} связей за {} мс",
+                spans.size, pairs.size(), related.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private List<ItemRelated> topNeighbours(long[] itemIds, LongIntCounter pairs) {
+        int[][] neighbours = new int[itemIds.length][];
+        int[][] scores = new int[itemIds.length][];
+        int[] sizes = new int[itemIds.length];
+        pairs.forEach((key, score) -> {
+            if (score < minScore) {
+                return;
+            }
+            int first = (int) (key >>> 32);
+            int second = (int) key;
+            offer(neighbours, scores, sizes, first, second, score);
+            offer(neighbours, scores, sizes, second, first, score);
+        });
+
+        List<ItemRelated> related = new ArrayList<>();
+        for (int item = 0; item < itemIds.length; item++) {
+            for (int i = 0; i < sizes[item]; i++) {
+                related.add(new ItemRelated(itemIds[item], itemIds[neighbours[item][i]], scores[item][i]));
+            }
+        }
+        return related;
+    }
+
+    // вставка в отсортированный топ вещи: по убыванию score, при равенстве - по возрастанию id
+    private void offer(int[][] neighbours, int[][] scores, int[] sizes, int item, int neighbour, int score) {
+        if (neighbours[item] == null) {
+            neighbours[item] = new int[topSize];
+            scores[item] = new int[topSize];
+        }
+        int[] top = neighbours[item];
+        int[] topScores = scores[item];
+        int size = sizes[item];
+        int position = size;
+        while (position > 0 && (topScores[position - 1] < score
+                || topScores[position - 1] == score && top[position - 1] > neighbour)) {
+            position--;
+        }
+        if (position >= topSize) {
+            return;
+        }
+        int moved = Math.min(size, topSize - 1) - position;
+        System.arraycopy(top, position, top, position + 1, moved);
+        System.arraycopy(topScores, position, topScores, position + 1, moved);
+        top[position] = neighbour;
+        topScores[position] = score;
+        sizes[item] = Math.min(size + 1, topSize);
+    }
+
+    private void save(List<ItemRelated> related, LocalDateTime computedAt) {
+        Map<Integer, List<ItemRelated>> byShard = new HashMap<>();
+        for (ItemRelated row : related) {
+            byShard.computeIfAbsent(shardRouter.shardOfItem(row.itemId()), shard -> new ArrayList<>()).add(row);
+        }
+        shardRouter.forEachShard(() -> {
+            Integer shard = ShardContext.current();
+            itemRelatedRepository.upsert(byShard.getOrDefault(shard != null ? shard : 0, List.of()), computedAt);
+            itemRelatedRepository.deleteComputedBefore(computedAt);
+        });
+    }
+
+    // пары одного арендатора не делятся между задачами: границы диапазона сдвигаются к смене арендатора
+    private class PairTask extends RecursiveTask<LongIntCounter> {
+        private final Spans spans;
+        private final int from;
+        private final int to;
+
+        PairTask(Spans spans, int from, int to) {
+            this.spans = spans;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LongIntCounter compute() {
+            if (to - from <= chunkSize) {
+                return countPairs();
+            }
+            int middle = from + (to - from) / 2;
+            while (middle < to && spans.bookers[middle] == spans.bookers[middle - 1]) {
+                middle++;
+            }
+            if (middle == to) {
+                return countPairs();
+            }
+            PairTask left = new PairTask(spans, from, middle);
+            PairTask right = new PairTask(spans, middle, to);
+            right.fork();
+            LongIntCounter result = left.compute();
+            LongIntCounter other = right.join();
+            if (other.size() > result.size()) {
+                other.addAll(result);
+                return other;
+            }
+            result.addAll(other);
+            return result;
+        }
+
+        // у одного арендатора пара засчитывается один раз, сколько бы раз он ни бронировал обе вещи
+        private LongIntCounter countPairs() {
+            LongIntCounter counter = new LongIntCounter();
+            long[] bookerPairs = new long[16];
+            int groupStart = from;
+            while (groupStart < to) {
+                int groupEnd = groupStart + 1;
+                while (groupEnd < to && spans.bookers[groupEnd] == spans.bookers[groupStart]) {
+                    groupEnd++;
+                }
+
+                int pairCount = 0;
+                for (int a = groupStart; a < groupEnd; a++) {
+                    long until = spans.ends[a] + adjacencySeconds;
+                    for (int b = a + 1; b < groupEnd && spans.starts[b] <= until; b++) {
+                        int first = spans.itemIndexes[a];
+                        int second = spans.itemIndexes[b];
+                        if (first == second) {
+                            continue;
+                        }
+                        if (pairCount == bookerPairs.length) {
+                            bookerPairs = Arrays.copyOf(bookerPairs, pairCount * 2);
+                        }
+                        bookerPairs[pairCount++] = pack(Math.min(first, second), Math.max(first, second));
+                    }
+                }
+                Arrays.sort(bookerPairs, 0, pairCount);
+                for (int i = 0; i < pairCount; i++) {
+                    if (i == 0 || bookerPairs[i] != bookerPairs[i - 1]) {
+                        counter.add(bookerPairs[i], 1);
+                    }
+                }
+                groupStart = groupEnd;
+            }
+            return counter;
+        }
+    }
+
+    // first < second, поэтому ключ не бывает нулевым
+    private static long pack(int first, int second) {
+        return ((long) first << 32) | second;
+    }
+
+    // одобренные бронирования в порядке (арендатор, начало); время - в секундах
+    private static final class Spans {
+        private long[] bookers = new long[16];
+        private long[] items = new long[16];
+        private long[] starts = new long[16];
+        private long[] ends = new long[16];
+        private int[] itemIndexes;
+        private int size;
+
+        private void add(long bookerId, long itemId, LocalDateTime start, LocalDateTime end) {
+            add(bookerId, itemId, start.toEpochSecond(ZoneOffset.UTC), end.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        private void add(long bookerId, long itemId, long start, long end) {
+            if (size == bookers.length) {
+                int capacity = size * 2;
+                bookers = Arrays.copyOf(bookers, capacity);
+                items = Arrays.copyOf(items, capacity);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+            }
+            bookers[size] = bookerId;
+            items[size] = itemId;
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        // бронирования арендатора разнесены по шардам владельцев: упорядоченные части сливаются
+        private static Spans merge(List<Spans> parts) {
+            if (parts.size() == 1) {
+                return parts.getFirst();
+            }
+            Spans merged = new Spans();
+            int[] positions = new int[parts.size()];
+            while (true) {
+                int next = -1;
+                for (int part = 0; part < parts.size(); part++) {
+                    if (positions[part] < parts.get(part).size
+                            && (next < 0 || parts.get(part).before(positions[part], parts.get(next), positions[next]))) {
+                        next = part;
+                    }
+                }
+                if (next < 0) {
+                    return merged;
+                }
+                Spans part = parts.get(next);
+                int i = positions[next]++;
+                merged.add(part.bookers[i], part.items[i], part.starts[i], part.ends[i]);
+            }
+        }
+
+        private boolean before(int i, Spans other, int j) {
+            return bookers[i] != other.bookers[j] ? bookers[i] < other.bookers[j] : starts[i] < other.starts[j];
+        }
+
+        // плотные номера вещей в порядке id; возвращает id по номеру
+        private long[] indexItems() {
+            long[] itemIds = Arrays.stream(items, 0, size).sorted().distinct().toArray();
+            itemIndexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                itemIndexes[i] = Arrays.binarySearch(itemIds, items[i]);
+            }
+            return itemIds;
+        }
+    }
+}
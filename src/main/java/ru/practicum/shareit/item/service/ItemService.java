@@ -1,9 +1,16 @@
 package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CommentPageDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
+import ru.practicum.shareit.item.dto.ItemFields;
+import ru.practicum.shareit.item.dto.ItemRelatedDto;
+import ru.practicum.shareit.item.dto.ItemUtilizationDto;
 import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchSort;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemService {
@@ -16,13 +23,22 @@ public interface ItemService {
 
     List<Item> getAllByOwner(Long ownerId, int from, int size);
 
-    List<Item> search(String text, int from, int size);
+    List<Item> search(String text, int from, int size, ItemSearchSort sort, LocalDateTime start, LocalDateTime end);
 
     void delete(Long itemId, Long ownerId);
 
     CommentDto addComment(Long userId, Long itemId, CommentDto commentDto);
 
-    ItemWithCommentsAndBookingDto getItemWithCommentsAndBookings(Long itemId, Long userId);
+    ItemWithCommentsAndBookingDto getItemWithCommentsAndBookings(Long itemId, Long userId, ItemFields fields);
 
-    List<ItemWithCommentsAndBookingDto> getItemsWithCommentsAndBookingsByOwner(Long ownerId, int from, int size);
+    List<ItemWithCommentsAndBookingDto> getItemsWithCommentsAndBookingsByOwner(Long ownerId, int from, int size,
+                                                                               ItemFields fields);
+
+    ItemBatchDto getItemsWithCommentsAndBookings(List<Long> itemIds, Long userId, ItemFields fields);
+
+    CommentPageDto getComments(Long itemId, Long before, int size);
+
+    List<ItemUtilizationDto> getUtilizationByOwner(Long ownerId, int from, int size);
+
+    List<ItemRelatedDto> getRelated(Long itemId, int limit);
 }
@@ -5,66 +5,108 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.booking.dto.BookingShortDto;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
 import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.CommentPageDto;
+import ru.practicum.shareit.item.dto.ItemBatchDto;
+import ru.practicum.shareit.item.dto.ItemField;
+import ru.practicum.shareit.item.dto.ItemFields;
+import ru.practicum.shareit.item.dto.ItemRelatedDto;
+import ru.practicum.shareit.item.dto.ItemUtilizationDto;
 import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemRelated;
+import ru.practicum.shareit.item.model.ItemSearchSort;
 import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRelatedRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.repository.ItemStatsRepository;
+import ru.practicum.shareit.purge.model.PurgeTaskType;
+import ru.practicum.shareit.purge.service.PurgeService;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.sharding.ShardScatter;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ItemServiceImpl implements ItemService {
+    private static final int MAX_BATCH_SIZE = 100;
+    // при шардировании каждый шард отдаёт offset + size строк: глубже поиск листать нельзя
+    private static final int MAX_SHARDED_SEARCH_OFFSET = 1000;
+
     private final ItemRepository itemRepository;
     private final UserService userService;
     private final BookingService bookingService;
     private final CommentRepository commentRepository;
+    private final ItemViewCounter itemViewCounter;
+    private final ItemStatsRepository itemStatsRepository;
+    private final ItemRelatedRepository itemRelatedRepository;
+    private final PurgeService purgeService;
+    private final ItemViewCoalescer itemViewCoalescer;
+    private final ItemViewFetcher itemViewFetcher;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final ItemRequestService itemRequestService;
+    private final ShardRouter shardRouter;
+    private final ShardScatter shardScatter;
 
     @Override
     public Item create(Item item, Long ownerId) {
+        // запросы лежат на шарде 0: проверка до выбора шарда владельца
+        if (item.getRequestId() != null) {
+            itemRequestService.checkExists(item.getRequestId());
+        }
+        shardRouter.routeByOwner(ownerId);
         User owner = userService.getUser(ownerId);
         validateItem(item);
         item.setOwner(owner);
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        itemSuggestionIndex.put(saved);
+        return saved;
     }
 
+    // только переданные поля, одним UPDATE с проверкой владельца в WHERE, который сразу возвращает строку
     @Override
     public Item update(Item item, Long ownerId) {
-        Item existingItem = getById(item.getId());
-
-        if (!existingItem.getOwner().getId().equals(ownerId)) {
-            throw new NotFoundException("Редактировать вещь может только владелец");
-        }
-
-        if (item.getName() != null) {
-            existingItem.setName(item.getName());
-        }
-        if (item.getDescription() != null) {
-            existingItem.setDescription(item.getDescription());
-        }
-        if (item.getAvailable() != null) {
-            existingItem.setAvailable(item.getAvailable());
-        }
-
-        return itemRepository.save(existingItem);
+        shardRouter.routeByItem(item.getId());
+        Item saved = itemRepository.updateFields(item.getId(), ownerId,
+                        item.getName(), item.getDescription(), item.getAvailable())
+                .orElseThrow(() -> {
+                    // вещи нет или она чужая: различаем только здесь, на пути ошибки
+                    getById(item.getId());
+                    return new NotFoundException("Редактировать вещь может только владелец");
+                });
+        itemSuggestionIndex.put(saved);
+        return saved;
     }
 
     @Override
     public Item getById(Long itemId) {
+        shardRouter.routeByItem(itemId);
         return itemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException("Вещь с ID " + itemId + " не найдена"));
     }
@@ -72,32 +114,103 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public List<Item> getAllByOwner(Long ownerId, int from, int size) {
         validatePagination(from, size);
+        shardRouter.routeByOwner(ownerId);
         Pageable pageable = PageRequest.of(from / size, size);
         return itemRepository.findByOwnerId(ownerId, pageable);
     }
 
     @Override
-    public List<Item> search(String text, int from, int size) {
+    public List<ItemUtilizationDto> getUtilizationByOwner(Long ownerId, int from, int size) {
+        shardRouter.routeByOwner(ownerId);
+        userService.getUser(ownerId);
+        validatePagination(from, size);
+        log.info("Получение статистики бронирований вещей пользователя с id: {}", ownerId);
+        return itemStatsRepository.findUtilizationByOwner(ownerId, from / size * size, size);
+    }
+
+    // соседи посчитаны заранее (ItemRelatedRecomputer), здесь только подгружаются сами вещи
+    @Override
+    public List<ItemRelatedDto> getRelated(Long itemId, int limit) {
+        shardRouter.routeByItem(itemId);
+        if (!itemRepository.existsById(itemId)) {
+            throw new NotFoundException("Вещь с ID " + itemId + " не найдена");
+        }
+        Map<Long, Integer> scores = itemRelatedRepository.findByItemId(itemId).stream()
+                .collect(Collectors.toMap(ItemRelated::relatedItemId, ItemRelated::score));
+        if (scores.isEmpty()) {
+            return List.of();
+        }
+
+        // соседи могут лежать на других шардах; недоступные и удалённые после расчёта не показываются
+        Map<Integer, Supplier<List<ItemRelatedDto>>> queries = new TreeMap<>();
+        scores.keySet().stream()
+                .collect(Collectors.groupingBy(shardRouter::shardOfItem, Collectors.toList()))
+                .forEach((shard, shardIds) -> queries.put(shard, () -> itemRepository.findAllById(shardIds).stream()
+                        .filter(item -> Boolean.TRUE.equals(item.getAvailable()))
+                        .map(item -> ItemMapper.toRelatedDto(item, scores.get(item.getId())))
+                        .toList()));
+        return shardScatter.scatter(queries).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(ItemRelatedDto::getBookedTogether, Comparator.reverseOrder())
+                        .thenComparing(ItemRelatedDto::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public List<Item> search(String text, int from, int size, ItemSearchSort sort,
+                             LocalDateTime start, LocalDateTime end) {
         if (text == null || text.isBlank()) {
             return List.of();
         }
         validatePagination(from, size);
-        Pageable pageable = PageRequest.of(from / size, size);
-        return itemRepository.findAvailableItemsByText(text, pageable);
+        if (start != null || end != null) {
+            if (start == null || end == null) {
+                throw new ValidationException("Параметры 'start' и 'end' задаются вместе");
+            }
+            if (!end.isAfter(start)) {
+                throw new ValidationException("Параметр 'end' должен быть позже 'start'");
+            }
+        }
+        Function<Pageable, List<Item>> query = start == null
+                ? pageable -> itemRepository.findAvailableItemsByText(text, pageable)
+                : pageable -> itemRepository.findAvailableItemsByTextAndPeriod(text, start, end, pageable);
+
+        if (!shardRouter.isSharded()) {
+            return query.apply(PageRequest.of(from / size, size, sort.toSort()));
+        }
+        // с каждого шарда берутся первые offset + size строк, после слияния лишнее отбрасывается
+        int offset = from / size * size;
+        if (offset > MAX_SHARDED_SEARCH_OFFSET) {
+            throw new ValidationException("Параметр 'from' не может быть больше " + MAX_SHARDED_SEARCH_OFFSET);
+        }
+        Sort shardSort = sort == ItemSearchSort.NONE ? Sort.by("id") : sort.toSort();
+        return shardScatter.gatherSorted(() -> query.apply(PageRequest.of(0, offset + size, shardSort)),
+                        sort.toComparator()).stream()
+                .skip(offset)
+                .limit(size)
+                .toList();
     }
 
+    @Transactional
     @Override
     public void delete(Long itemId, Long ownerId) {
+        shardRouter.routeByItem(itemId);
         Item item = getById(itemId);
         if (!item.getOwner().getId().equals(ownerId)) {
             throw new NotFoundException("Удалять вещь может только владелец");
         }
-        itemRepository.deleteById(itemId);
+        // комментарии и бронирования удалит фоновая очистка, а не каскад в этой транзакции
+        itemRepository.markDeleted(itemId);
+        purgeService.enqueue(PurgeTaskType.ITEM, itemId);
+        itemViewCounter.evict(itemId);
+        itemSuggestionIndex.remove(itemId);
     }
 
     @Transactional
     @Override
     public CommentDto addComment(Long userId, Long itemId, CommentDto commentDto) {
+        shardRouter.routeByItem(itemId);
         User user = userService.getUser(userId);
         Item item = itemRepository.findById(itemId)
                 .orElseThrow(() -> new NotFoundException("Вещь с id:" + itemId + " не найдена"));
@@ -117,6 +230,9 @@ public class ItemServiceImpl implements ItemService {
         comment.setAuthor(user);
 
         comment = commentRepository.save(comment);
+        itemRepository.addCommentToAggregates(itemId, comment.getCreated(),
+                comment.getRating() != null ? comment.getRating() : 0,
+                comment.getRating() != null ? 1 : 0);
 
         log.info("Добавление комментария пользователем {} к предмету {}", userId, itemId);
 
@@ -132,41 +248,178 @@ public class ItemServiceImpl implements ItemService {
         }
     }
 
-    public ItemWithCommentsAndBookingDto getItemWithCommentsAndBookings(Long itemId, Long userId) {
-        Item item = getById(itemId);
-        List<CommentDto> comments = getCommentsByItemId(itemId);
-
-        BookingShortDto lastBooking = null;
-        BookingShortDto nextBooking = null;
+    // общая для всех часть карточки загружается одна на все одновременные запросы,
+    // бронирования владельца достраиваются поверх неё отдельной загрузкой
+    @Override
+    public ItemWithCommentsAndBookingDto getItemWithCommentsAndBookings(Long itemId, Long userId, ItemFields fields) {
+        shardRouter.routeByItem(itemId);
+        ItemWithCommentsAndBookingDto publicView = itemViewCoalescer.load(itemId, false, fields,
+                () -> loadPublicView(itemId, fields));
+        if (!publicView.getOwnerId().equals(userId) || !fields.includesBookings()) {
+            return publicView;
+        }
+        return itemViewCoalescer.load(itemId, true, fields, () -> loadOwnerView(publicView, fields));
+    }
 
-        if (item.getOwner().getId().equals(userId)) {
-            lastBooking = bookingService.getLastBookingForItem(itemId);
-            nextBooking = bookingService.getNextBookingForItem(itemId);
+    // вещь читается в потоке запроса, комментарии и бронирования - через itemViewFetcher, независимо друг от друга
+    private ItemWithCommentsAndBookingDto loadPublicView(Long itemId, ItemFields fields) {
+        long deadline = itemViewFetcher.deadline();
+        Future<CommentPageDto> comments = fields.includes(ItemField.COMMENTS)
+                ? itemViewFetcher.submit(() -> getCommentPage(itemId, null, fields.getCommentsLimit()))
+                : CompletableFuture.completedFuture(null);
+        Item item;
+        try {
+            item = getById(itemId);
+        } catch (RuntimeException e) {
+            itemViewFetcher.cancel(comments);
+            throw e;
         }
+        return ItemMapper.toItemWithCommentsAndBookingDto(item, itemViewFetcher.await(comments, deadline), null, null);
+    }
 
-        return ItemMapper.toItemWithCommentsAndBookingDto(item, comments, lastBooking, nextBooking);
+    private ItemWithCommentsAndBookingDto loadOwnerView(ItemWithCommentsAndBookingDto publicView, ItemFields fields) {
+        Long itemId = publicView.getId();
+        long deadline = itemViewFetcher.deadline();
+        Future<BookingShortDto> lastBooking = fields.includes(ItemField.LAST_BOOKING)
+                ? itemViewFetcher.submit(() -> bookingService.getLastBookingForItem(itemId))
+                : CompletableFuture.completedFuture(null);
+        Future<BookingShortDto> nextBooking = fields.includes(ItemField.NEXT_BOOKING)
+                ? itemViewFetcher.submit(() -> bookingService.getNextBookingForItem(itemId))
+                : CompletableFuture.completedFuture(null);
+        try {
+            return publicView.toBuilder()
+                    .lastBooking(itemViewFetcher.await(lastBooking, deadline))
+                    .nextBooking(itemViewFetcher.await(nextBooking, deadline))
+                    .build();
+        } catch (RuntimeException e) {
+            itemViewFetcher.cancel(lastBooking, nextBooking);
+            throw e;
+        }
     }
 
     @Override
-    public List<ItemWithCommentsAndBookingDto> getItemsWithCommentsAndBookingsByOwner(Long ownerId, int from, int size) {
+    public List<ItemWithCommentsAndBookingDto> getItemsWithCommentsAndBookingsByOwner(Long ownerId, int from, int size,
+                                                                                      ItemFields fields) {
         List<Item> items = getAllByOwner(ownerId, from, size);
+        return toItemsWithCommentsAndBookings(items, ownerId, fields);
+    }
+
+    @Override
+    public ItemBatchDto getItemsWithCommentsAndBookings(List<Long> itemIds, Long userId, ItemFields fields) {
+        Set<Long> ids = new LinkedHashSet<>(itemIds);
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Нельзя запросить больше " + MAX_BATCH_SIZE + " вещей за раз");
+        }
+
+        // вещи разных владельцев могут лежать на разных шардах: каждый шард отдаёт свою часть пачки
+        Map<Integer, Supplier<List<ItemWithCommentsAndBookingDto>>> queries = new TreeMap<>();
+        ids.stream()
+                .collect(Collectors.groupingBy(shardRouter::shardOfItem, Collectors.toList()))
+                .forEach((shard, shardIds) -> queries.put(shard, () -> loadBatch(shardIds, userId, fields)));
+        Map<Long, ItemWithCommentsAndBookingDto> found = shardScatter.scatter(queries).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(ItemWithCommentsAndBookingDto::getId, Function.identity()));
+
+        List<ItemWithCommentsAndBookingDto> items = ids.stream()
+                .filter(found::containsKey)
+                .map(found::get)
+                .toList();
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !found.containsKey(id))
+                .toList();
+
+        return new ItemBatchDto(items, missingIds);
+    }
+
+    private List<ItemWithCommentsAndBookingDto> loadBatch(List<Long> ids, Long userId, ItemFields fields) {
+        Map<Long, Item> found = itemRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<Item> items = ids.stream()
+                .filter(found::containsKey)
+                .map(found::get)
+                .toList();
+        return toItemsWithCommentsAndBookings(items, userId, fields);
+    }
+
+    @Override
+    public CommentPageDto getComments(Long itemId, Long before, int size) {
+        if (size <= 0 || size > ItemFields.MAX_COMMENTS_LIMIT) {
+            throw new ValidationException("Параметр 'size' должен быть от 1 до " + ItemFields.MAX_COMMENTS_LIMIT);
+        }
+        shardRouter.routeByItem(itemId);
+        if (!itemRepository.existsById(itemId)) {
+            throw new NotFoundException("Вещь с ID " + itemId + " не найдена");
+        }
+        return getCommentPage(itemId, before, size);
+    }
+
+    // комментарии и бронирования собираются пачкой, бронирования видны только владельцу вещи
+    private List<ItemWithCommentsAndBookingDto> toItemsWithCommentsAndBookings(List<Item> items, Long userId,
+                                                                              ItemFields fields) {
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> itemIds = items.stream()
+                .map(Item::getId)
+                .toList();
+        List<Long> ownedItemIds = items.stream()
+                .filter(item -> item.getOwner().getId().equals(userId))
+                .map(Item::getId)
+                .toList();
+
+        Map<Long, CommentPageDto> comments = fields.includes(ItemField.COMMENTS)
+                ? getLatestComments(itemIds, fields.getCommentsLimit())
+                : Map.of();
+        Map<Long, BookingShortDto> lastBookings = fields.includes(ItemField.LAST_BOOKING)
+                ? bookingService.getLastBookingsForItems(ownedItemIds)
+                : Map.of();
+        Map<Long, BookingShortDto> nextBookings = fields.includes(ItemField.NEXT_BOOKING)
+                ? bookingService.getNextBookingsForItems(ownedItemIds)
+                : Map.of();
 
         return items.stream()
                 .map(item -> {
-                    List<CommentDto> comments = getCommentsByItemId(item.getId());
-                    BookingShortDto lastBooking = bookingService.getLastBookingForItem(item.getId());
-                    BookingShortDto nextBooking = bookingService.getNextBookingForItem(item.getId());
-
-                    return ItemMapper.toItemWithCommentsAndBookingDto(item, comments, lastBooking, nextBooking);
+                    CommentPageDto page = null;
+                    if (fields.includes(ItemField.COMMENTS)) {
+                        page = comments.getOrDefault(item.getId(), new CommentPageDto(List.of(), null));
+                        // счётчик может опережать видимые комментарии, пока агрегаты не пересчитаны
+                        if (!page.getComments().isEmpty() && item.getCommentCount() > page.getComments().size()) {
+                            page.setNextCursor(page.getComments().getLast().getId());
+                        }
+                    }
+                    return ItemMapper.toItemWithCommentsAndBookingDto(item, page,
+                            lastBookings.get(item.getId()),
+                            nextBookings.get(item.getId()));
                 })
                 .collect(Collectors.toList());
     }
 
-    private List<CommentDto> getCommentsByItemId(Long itemId) {
-        List<Comment> comments = commentRepository.findByItemId(itemId);
-        return comments.stream()
+    // курсор следующей страницы выставляется, только если за ней есть ещё комментарии
+    private CommentPageDto getCommentPage(Long itemId, Long before, int size) {
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<Comment> comments = before == null
+                ? commentRepository.findByItemIdOrderByIdDesc(itemId, pageable)
+                : commentRepository.findByItemIdAndIdLessThanOrderByIdDesc(itemId, before, pageable);
+
+        boolean hasMore = comments.size() > size;
+        List<CommentDto> page = comments.stream()
+                .limit(size)
                 .map(CommentMapper::toDto)
                 .collect(Collectors.toList());
+        return new CommentPageDto(page, hasMore ? page.getLast().getId() : null);
+    }
+
+    private Map<Long, CommentPageDto> getLatestComments(List<Long> itemIds, int limit) {
+        List<Long> commentIds = commentRepository.findLatestIdsByItemIds(itemIds, limit);
+        if (commentIds.isEmpty()) {
+            return Map.of();
+        }
+        return commentRepository.findByIdInOrderByIdDesc(commentIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(),
+                        Collectors.collectingAndThen(
+                                Collectors.mapping(CommentMapper::toDto, Collectors.toList()),
+                                page -> new CommentPageDto(page, null))));
     }
 
     private void validateItem(Item item) {
@@ -0,0 +1,96 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.repository.ItemStatsRepository;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Ночной пересчёт статистики бронирований по таблице bookings.
+ * Диапазон id вещей делится пополам, пока не станет не больше chunk-size; диапазоны обрабатываются
+ * параллельно в отдельном ForkJoinPool. Каждый диапазон пересчитывается одним оператором MERGE,
+ * который переписывает только разошедшиеся строки item_stats.
+ */
+@Slf4j
+@Component
+public class ItemStatsRecomputer {
+    private final ItemRepository itemRepository;
+    private final ItemStatsRepository itemStatsRepository;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final int parallelism;
+
+    public ItemStatsRecomputer(ItemRepository itemRepository,
+                               ItemStatsRepository itemStatsRepository,
+                               ShardRouter shardRouter,
+                               @Value("${shareit.item-stats.recompute-chunk-size:1000}") int chunkSize,
+                               @Value("${shareit.item-stats.recompute-parallelism:4}") int parallelism) {
+        this.itemRepository = itemRepository;
+        this.itemStatsRepository = itemStatsRepository;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Scheduled(cron = "${shareit.item-stats.recompute-cron:0 0 3 * * *}")
+    public void recompute() {
+        shardRouter.forEachShard(this::recomputeShard);
+    }
+
+    private void recomputeShard() {
+        Long maxId = itemRepository.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int repaired = pool.invoke(new RangeTask(ShardContext.current(), 1, maxId));
+            if (repaired > 0) {
+                log.warn("Исправлена статистика бронирований у {} вещей", repaired);
+            } else {
+                log.info("Статистика бронирований вещей согласована");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private int recomputeRange(long fromId, long toId) {
+        return itemStatsRepository.recomputeBookingStats(fromId, toId);
+    }
+
+    // шард передаётся в задачу явно: она выполняется в потоках ForkJoinPool
+    private class RangeTask extends RecursiveTask<Integer> {
+        private final Integer shard;
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(Integer shard, long fromId, long toId) {
+            this.shard = shard;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (toId - fromId < chunkSize) {
+                return shard != null
+                        ? ShardContext.call(shard, () -> recomputeRange(fromId, toId))
+                        : recomputeRange(fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(shard, fromId, middle);
+            RangeTask right = new RangeTask(shard, middle + 1, toId);
+            right.fork();
+            return left.compute() + right.join();
+        }
+    }
+}
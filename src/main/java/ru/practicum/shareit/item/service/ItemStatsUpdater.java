@@ -0,0 +1,40 @@
+package ru.practicum.shareit.item.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.event.BookingStatusChangedEvent;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.repository.ItemStatsRepository;
+
+/**
+ * Инкрементальное обновление статистики бронирований вещи в item_stats.
+ * Выполняется после коммита бронирования в отдельной транзакции: сбой здесь не откатывает бронирование,
+ * а возможное расхождение исправляет ночной {@link ItemStatsRecomputer}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemStatsUpdater {
+    private final ItemStatsRepository itemStatsRepository;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void onStatusChanged(BookingStatusChangedEvent event) {
+        try {
+            if (event.getOldStatus() == null) {
+                itemStatsRepository.addBooking(event.getItemId(),
+                        ItemStatsRepository.leadSeconds(event.getOccurredAt(), event.getStart()));
+            } else if (event.getNewStatus() == BookingStatus.APPROVED) {
+                itemStatsRepository.addApproved(event.getItemId(), event.getStart(), event.getEnd());
+            } else if (event.getNewStatus() == BookingStatus.REJECTED) {
+                itemStatsRepository.addRejected(event.getItemId());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Не удалось обновить статистику вещи с id: {} по событию {}", event.getItemId(), event, e);
+        }
+    }
+}
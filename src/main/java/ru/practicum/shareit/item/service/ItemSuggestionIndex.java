@@ -0,0 +1,185 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Подсказки по началу названия вещи из памяти, без обращения к базе.
+ * Индекс обновляется при создании, изменении и удалении вещи (внутри транзакции - после её коммита,
+ * чтобы откат не оставил в подсказках несуществующую вещь) и целиком перестраивается при старте
+ * и по расписанию: так подтягиваются изменения популярности и записи других экземпляров.
+ * Перестройка читает вещи диапазонами id параллельно, изменения, пришедшие во время неё,
+ * повторяются на новом индексе перед подменой.
+ */
+@Slf4j
+@Component
+public class ItemSuggestionIndex {
+    private final ItemRepository itemRepository;
+    private final ShardRouter shardRouter;
+    private final int topSize;
+    private final int chunkSize;
+    private final int parallelism;
+
+    private volatile ItemSuggestionTrie trie;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // изменения во время перестройки, null - перестройка не идёт
+    private List<Consumer<ItemSuggestionTrie>> pendingChanges;
+
+    public ItemSuggestionIndex(ItemRepository itemRepository,
+                               ShardRouter shardRouter,
+                               @Value("${shareit.item-suggest.top-size:10}") int topSize,
+                               @Value("${shareit.item-suggest.rebuild-chunk-size:1000}") int chunkSize,
+                               @Value("${shareit.item-suggest.rebuild-parallelism:4}") int parallelism) {
+        this.itemRepository = itemRepository;
+        this.shardRouter = shardRouter;
+        this.topSize = topSize;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.trie = ItemSuggestionTrie.empty(topSize);
+    }
+
+    public List<ItemSuggestion> suggest(String prefix, int limit) {
+        return trie.find(prefix, Math.min(limit, topSize));
+    }
+
+    // недоступная или удалённая вещь из подсказок убирается
+    public void put(Item item) {
+        if (!Boolean.TRUE.equals(item.getAvailable()) || item.isDeleted()) {
+            remove(item.getId());
+            return;
+        }
+        ItemSuggestion suggestion = ItemSuggestion.of(item);
+        change(index -> index.put(suggestion));
+    }
+
+    public void remove(Long itemId) {
+        change(index -> index.remove(itemId));
+    }
+
+    // не в @PostConstruct: подъём контекста не должен ждать базу
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${shareit.item-suggest.rebuild-cron:0 15 * * * *}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+
+        ItemSuggestionTrie rebuilt = null;
+        long startedAt = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<ItemSuggestion> suggestions = new ArrayList<>();
+            shardRouter.forEachShard(() -> suggestions.addAll(loadShard(pool)));
+            rebuilt = ItemSuggestionTrie.build(suggestions, topSize, pool);
+        } catch (RuntimeException e) {
+            log.warn("Не удалось перестроить индекс подсказок вещей, остаётся прежний", e);
+        } finally {
+            pool.shutdown();
+            writeLock.lock();
+            try {
+                if (rebuilt != null) {
+                    for (Consumer<ItemSuggestionTrie> change : pendingChanges) {
+                        change.accept(rebuilt);
+                    }
+                    trie = rebuilt;
+                }
+                pendingChanges = null;
+            } finally {
+                writeLock.unlock();
+                rebuilding.set(false);
+            }
+        }
+        if (rebuilt != null) {
+            log.info("Индекс подсказок вещей перестроен: {} вещей за {} мс",
+                    rebuilt.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+
+    private void change(Consumer<ItemSuggestionTrie> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(change);
+                }
+            });
+            return;
+        }
+        apply(change);
+    }
+
+    private void apply(Consumer<ItemSuggestionTrie> change) {
+        writeLock.lock();
+        try {
+            change.accept(trie);
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private List<ItemSuggestion> loadShard(ForkJoinPool pool) {
+        Long maxId = itemRepository.findMaxId();
+        if (maxId == null) {
+            return List.of();
+        }
+        return pool.invoke(new RangeTask(ShardContext.current(), 1, maxId));
+    }
+
+    // шард передаётся в задачу явно: она выполняется в потоках ForkJoinPool
+    private class RangeTask extends RecursiveTask<List<ItemSuggestion>> {
+        private final Integer shard;
+        private final long fromId;
+        private final long toId;
+
+        RangeTask(Integer shard, long fromId, long toId) {
+            this.shard = shard;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected List<ItemSuggestion> compute() {
+            if (toId - fromId < chunkSize) {
+                return shard != null
+                        ? ShardContext.call(shard, () -> itemRepository.findSuggestions(fromId, toId))
+                        : itemRepository.findSuggestions(fromId, toId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(shard, fromId, middle);
+            RangeTask right = new RangeTask(shard, middle + 1, toId);
+            right.fork();
+            List<ItemSuggestion> result = new ArrayList<>(left.compute());
+            result.addAll(right.join());
+            return result;
+        }
+    }
+}
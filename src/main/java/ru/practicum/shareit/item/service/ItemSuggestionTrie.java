@@ -0,0 +1,299 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.item.model.ItemSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Префиксное дерево названий вещей. В каждом узле заранее посчитан топ по популярности среди вещей,
+ * чей ключ проходит через узел, поэтому подсказка - это спуск по префиксу и копия готового топа.
+ * Ключи вещи - название и его окончания с начала каждого слова: "ударная дрель" находится и по "дре".
+ * <p>
+ * Читать можно из любых потоков без блокировок: дети и топ узла заменяются целиком.
+ * Изменения (put, remove) должны выполняться по одному.
+ */
+final class ItemSuggestionTrie {
+    // длинные названия режутся: подсказки нужны по первым символам, а глубина дерева ограничена
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final ItemSuggestion[] NO_SUGGESTIONS = new ItemSuggestion[0];
+
+    private final int topSize;
+    private final Node root;
+    private final Map<Long, ItemSuggestion> indexed;
+
+    private ItemSuggestionTrie(int topSize, Node root, Map<Long, ItemSuggestion> indexed) {
+        this.topSize = topSize;
+        this.root = root;
+        this.indexed = indexed;
+    }
+
+    static ItemSuggestionTrie empty(int topSize) {
+        return new ItemSuggestionTrie(topSize, new Node(), new HashMap<>());
+    }
+
+    // поддеревья по первой букве строятся параллельно и не пересекаются
+    static ItemSuggestionTrie build(Collection<ItemSuggestion> suggestions, int topSize, ForkJoinPool pool) {
+        Map<Long, ItemSuggestion> indexed = new HashMap<>();
+        Map<Character, List<Key>> keysByFirstChar = new TreeMap<>();
+        for (ItemSuggestion suggestion : suggestions) {
+            indexed.put(suggestion.id(), suggestion);
+            for (String key : keys(suggestion.name())) {
+                keysByFirstChar.computeIfAbsent(key.charAt(0), c -> new ArrayList<>()).add(new Key(key, suggestion));
+            }
+        }
+
+        ItemSuggestionTrie trie = new ItemSuggestionTrie(topSize, new Node(), indexed);
+        List<Map.Entry<Character, List<Key>>> groups = new ArrayList<>(keysByFirstChar.entrySet());
+        List<Node> subtrees = pool.submit(() -> groups.parallelStream()
+                .map(group -> trie.buildSubtree(group.getValue()))
+                .toList()).join();
+
+        char[] firstChars = new char[groups.size()];
+        for (int i = 0; i < groups.size(); i++) {
+            firstChars[i] = groups.get(i).getKey();
+        }
+        trie.root.children = new Children(firstChars, subtrees.toArray(Node[]::new));
+        trie.root.top = trie.collectTop(trie.root);
+        return trie;
+    }
+
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е').trim().replaceAll("\\s+", " ");
+    }
+
+    int size() {
+        return indexed.size();
+    }
+
+    List<ItemSuggestion> find(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        for (int i = 0; i < Math.min(key.length(), MAX_KEY_LENGTH) && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        ItemSuggestion[] top = node.top;
+        return List.of(top).subList(0, Math.min(limit, top.length));
+    }
+
+    void put(ItemSuggestion suggestion) {
+        ItemSuggestion previous = indexed.get(suggestion.id());
+        if (suggestion.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            remove(previous.id());
+        }
+        indexed.put(suggestion.id(), suggestion);
+
+        // вещей под узлом стало больше на одну: её достаточно вставить в готовые топы на пути
+        Set<Node> path = new LinkedHashSet<>();
+        path.add(root);
+        for (String key : keys(suggestion.name())) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.childOrCreate(key.charAt(i));
+                path.add(node);
+            }
+            node.addTerminal(suggestion);
+        }
+        for (Node node : path) {
+            node.top = insertIntoTop(node.top, suggestion);
+        }
+    }
+
+    void remove(Long itemId) {
+        ItemSuggestion suggestion = indexed.remove(itemId);
+        if (suggestion == null) {
+            return;
+        }
+
+        // топы на пути пересчитываются снизу вверх из терминалов узла и топов детей
+        List<List<Node>> paths = new ArrayList<>();
+        for (String key : keys(suggestion.name())) {
+            List<Node> path = new ArrayList<>(key.length() + 1);
+            path.add(root);
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+                if (node != null) {
+                    path.add(node);
+                }
+            }
+            if (path.size() == key.length() + 1) {
+                path.getLast().removeTerminal(itemId);
+            }
+            paths.add(path);
+        }
+        int maxDepth = paths.stream().mapToInt(List::size).max().orElse(0);
+        for (int depth = maxDepth - 1; depth >= 0; depth--) {
+            Set<Node> recomputed = new LinkedHashSet<>();
+            for (List<Node> path : paths) {
+                if (depth >= path.size() || !recomputed.add(path.get(depth))) {
+                    continue;
+                }
+                Node node = path.get(depth);
+                node.top = collectTop(node);
+                if (depth > 0 && node.isEmpty()) {
+                    path.get(depth - 1).removeChild(node);
+                }
+            }
+        }
+    }
+
+    private Node buildSubtree(List<Key> keys) {
+        Node subtree = new Node();
+        for (Key key : keys) {
+            Node node = subtree;
+            for (int i = 1; i < key.value().length(); i++) {
+                node = node.childOrCreate(key.value().charAt(i));
+            }
+            node.addTerminal(key.suggestion());
+        }
+        computeTops(subtree);
+        return subtree;
+    }
+
+    private void computeTops(Node node) {
+        for (Node child : node.children.nodes()) {
+            computeTops(child);
+        }
+        node.top = collectTop(node);
+    }
+
+    private ItemSuggestion[] collectTop(Node node) {
+        Map<Long, ItemSuggestion> candidates = new HashMap<>();
+        if (node.terminals != null) {
+            node.terminals.forEach(terminal -> candidates.put(terminal.id(), terminal));
+        }
+        for (Node child : node.children.nodes()) {
+            for (ItemSuggestion suggestion : child.top) {
+                candidates.put(suggestion.id(), suggestion);
+            }
+        }
+        return candidates.values().stream()
+                .sorted(ItemSuggestion.BY_POPULARITY)
+                .limit(topSize)
+                .toArray(ItemSuggestion[]::new);
+    }
+
+    private ItemSuggestion[] insertIntoTop(ItemSuggestion[] top, ItemSuggestion suggestion) {
+        for (ItemSuggestion existing : top) {
+            if (existing.id().equals(suggestion.id())) {
+                return top;
+            }
+        }
+        int position = 0;
+        while (position < top.length && ItemSuggestion.BY_POPULARITY.compare(top[position], suggestion) < 0) {
+            position++;
+        }
+        if (position >= topSize) {
+            return top;
+        }
+        ItemSuggestion[] result = new ItemSuggestion[Math.min(top.length + 1, topSize)];
+        System.arraycopy(top, 0, result, 0, position);
+        result[position] = suggestion;
+        System.arraycopy(top, position, result, position + 1, result.length - position - 1);
+        return result;
+    }
+
+    private static Set<String> keys(String name) {
+        String normalized = normalize(name);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (i == 0 || normalized.charAt(i - 1) == ' ') {
+                keys.add(normalized.substring(i, Math.min(normalized.length(), i + MAX_KEY_LENGTH)));
+            }
+        }
+        return keys;
+    }
+
+    private record Key(String value, ItemSuggestion suggestion) {
+    }
+
+    private record Children(char[] keys, Node[] nodes) {
+        private static final Children EMPTY = new Children(new char[0], new Node[0]);
+    }
+
+    private static final class Node {
+        private volatile Children children = Children.EMPTY;
+        private volatile ItemSuggestion[] top = NO_SUGGESTIONS;
+        // вещи, ключ которых заканчивается в этом узле; меняются только при записи
+        private List<ItemSuggestion> terminals;
+
+        private Node child(char c) {
+            Children current = children;
+            int index = Arrays.binarySearch(current.keys(), c);
+            return index >= 0 ? current.nodes()[index] : null;
+        }
+
+        private Node childOrCreate(char c) {
+            Children current = children;
+            int index = Arrays.binarySearch(current.keys(), c);
+            if (index >= 0) {
+                return current.nodes()[index];
+            }
+            int insertAt = -index - 1;
+            char[] keys = new char[current.keys().length + 1];
+            Node[] nodes = new Node[keys.length];
+            System.arraycopy(current.keys(), 0, keys, 0, insertAt);
+            System.arraycopy(current.nodes(), 0, nodes, 0, insertAt);
+            keys[insertAt] = c;
+            nodes[insertAt] = new Node();
+            System.arraycopy(current.keys(), insertAt, keys, insertAt + 1, current.keys().length - insertAt);
+            System.arraycopy(current.nodes(), insertAt, nodes, insertAt + 1, current.nodes().length - insertAt);
+            children = new Children(keys, nodes);
+            return nodes[insertAt];
+        }
+
+        private void removeChild(Node child) {
+            Children current = children;
+            int index = Arrays.asList(current.nodes()).indexOf(child);
+            if (index < 0) {
+                return;
+            }
+            char[] keys = new char[current.keys().length - 1];
+            Node[] nodes = new Node[keys.length];
+            System.arraycopy(current.keys(), 0, keys, 0, index);
+            System.arraycopy(current.nodes(), 0, nodes, 0, index);
+            System.arraycopy(current.keys(), index + 1, keys, index, keys.length - index);
+            System.arraycopy(current.nodes(), index + 1, nodes, index, nodes.length - index);
+            children = new Children(keys, nodes);
+        }
+
+        private void addTerminal(ItemSuggestion suggestion) {
+            if (terminals == null) {
+                terminals = new ArrayList<>(1);
+            }
+            terminals.add(suggestion);
+        }
+
+        private void removeTerminal(Long itemId) {
+            if (terminals != null) {
+                terminals.removeIf(terminal -> terminal.id().equals(itemId));
+                if (terminals.isEmpty()) {
+                    terminals = null;
+                }
+            }
+        }
+
+        private boolean isEmpty() {
+            return terminals == null && children.keys().length == 0;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+import ru.practicum.shareit.item.dto.ItemFields;
+import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight для карточки вещи: одновременные одинаковые запросы (вещь, поля, смотрит ли владелец)
+ * ждут одну загрузку и получают её результат. Ожидание ограничено по времени и по числу ждущих,
+ * сверх этого запрос получает 503. Результат не кэшируется: следующий запрос после загрузки идёт в базу.
+ * Загруженная карточка остаётся внутри, каждый запрос, и загрузивший тоже, получает свою копию.
+ */
+@Component
+public class ItemViewCoalescer {
+    private final ConcurrentHashMap<Key, Flight> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutNanos;
+    private final int maxWaiters;
+
+    private final Counter loadedCounter;
+    private final Counter coalescedCounter;
+    private final Counter rejectedCounter;
+    private final Counter timedOutCounter;
+
+    public ItemViewCoalescer(MeterRegistry meterRegistry,
+                             @Value("${shareit.item-view.coalesce.wait-timeout:2s}") Duration waitTimeout,
+                             @Value("${shareit.item-view.coalesce.max-waiters:1000}") int maxWaiters) {
+        this.waitTimeoutNanos = waitTimeout.toNanos();
+        this.maxWaiters = maxWaiters;
+
+        this.loadedCounter = meterRegistry.counter("shareit.item-view.requests", "result", "loaded");
+        this.coalescedCounter = meterRegistry.counter("shareit.item-view.requests", "result", "coalesced");
+        this.rejectedCounter = meterRegistry.counter("shareit.item-view.requests", "result", "rejected");
+        this.timedOutCounter = meterRegistry.counter("shareit.item-view.requests", "result", "timeout");
+        Gauge.builder("shareit.item-view.in-flight", inFlight, ConcurrentHashMap::size)
+                .description("Число загрузок карточек вещей, выполняющихся прямо сейчас")
+                .register(meterRegistry);
+    }
+
+    public ItemWithCommentsAndBookingDto load(Long itemId, boolean ownerView, ItemFields fields,
+                                              Supplier<ItemWithCommentsAndBookingDto> loader) {
+        Key key = new Key(itemId, ownerView, fields);
+        Flight flight = new Flight();
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return await(existing, itemId);
+        }
+
+        loadedCounter.increment();
+        try {
+            ItemWithCommentsAndBookingDto result = loader.get();
+            flight.result.complete(result);
+            return ItemMapper.copyOf(result);
+        } catch (RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private ItemWithCommentsAndBookingDto await(Flight flight, Long itemId) {
+        if (flight.waiters.incrementAndGet() > maxWaiters) {
+            flight.waiters.decrementAndGet();
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("Слишком много одновременных запросов вещи с id " + itemId);
+        }
+        coalescedCounter.increment();
+        try {
+            return ItemMapper.copyOf(flight.result.get(waitTimeoutNanos, TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            timedOutCounter.increment();
+            throw new ServiceUnavailableException("Истекло время ожидания загрузки вещи с id " + itemId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Загрузка вещи с id " + itemId + " прервана");
+        } catch (ExecutionException e) {
+            // ждущие получают ту же ошибку, что и загружавший запрос, например NotFoundException
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            flight.waiters.decrementAndGet();
+        }
+    }
+
+    private record Key(Long itemId, boolean ownerView, ItemFields fields) {
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<ItemWithCommentsAndBookingDto> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+}
@@ -0,0 +1,157 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.dto.ItemViewsDto;
+import ru.practicum.shareit.item.repository.ItemStatsRepository;
+import ru.practicum.shareit.sharding.ShardContext;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Счётчик просмотров вещей.
+ * Просмотры копятся в памяти и периодически сбрасываются в item_stats одним пакетным upsert.
+ * Топ просматриваемых вещей отдаётся из памяти и пересчитывается после каждого сброса.
+ */
+@Slf4j
+@Component
+public class ItemViewCounter {
+    private static final Comparator<ItemViewsDto> BY_VIEWS = Comparator
+            .comparingLong(ItemViewsDto::getViews)
+            .thenComparing(ItemViewsDto::getItemId, Comparator.reverseOrder());
+
+    private final ItemStatsRepository itemStatsRepository;
+    private final ShardRouter shardRouter;
+    private final int topSize;
+
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Long> totals = new ConcurrentHashMap<>();
+    private volatile List<ItemViewsDto> top = List.of();
+    private final ReentrantLock topLock = new ReentrantLock();
+    // пока итоги из базы не загружены, загрузка повторяется при каждом сбросе
+    private volatile boolean totalsLoaded;
+    // загрузка итогов и сброс не пересекаются: иначе загрузка, прочитавшая базу до сброса,
+    // затёрла бы putAll просмотры, которые сброс только что добавил в totals
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public ItemViewCounter(ItemStatsRepository itemStatsRepository,
+                           ShardRouter shardRouter,
+                           @Value("${shareit.item-views.top-size:100}") int topSize) {
+        this.itemStatsRepository = itemStatsRepository;
+        this.shardRouter = shardRouter;
+        this.topSize = topSize;
+    }
+
+    // не в @PostConstruct: подъём контекста не должен ждать базу
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTotals() {
+        flushLock.lock();
+        try {
+            // в базе уже учтены и просмотры, сброшенные до загрузки: её значения заменяют накопленные в памяти
+            shardRouter.forEachShard(() -> totals.putAll(itemStatsRepository.findAllViews()));
+            totalsLoaded = true;
+        } catch (RuntimeException e) {
+            log.warn("Не удалось загрузить число просмотров вещей, повтор при следующем сбросе", e);
+        } finally {
+            flushLock.unlock();
+        }
+        rebuildTop();
+    }
+
+    public void recordView(Long itemId) {
+        pending.computeIfAbsent(itemId, id -> new LongAdder()).increment();
+    }
+
+    public List<ItemViewsDto> getMostViewed(int limit) {
+        List<ItemViewsDto> snapshot = top;
+        return snapshot.subList(0, Math.min(limit, snapshot.size()));
+    }
+
+    public long getViews(Long itemId) {
+        LongAdder unflushed = pending.get(itemId);
+        return totals.getOrDefault(itemId, 0L) + (unflushed != null ? unflushed.sum() : 0L);
+    }
+
+    public void evict(Long itemId) {
+        pending.remove(itemId);
+        if (totals.remove(itemId) != null) {
+            rebuildTop();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.item-views.flush-interval:10000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (!totalsLoaded) {
+                loadTotals();
+            }
+            Map<Long, Long> deltas = new HashMap<>();
+            pending.forEach((itemId, adder) -> {
+                long delta = adder.sumThenReset();
+                if (delta > 0) {
+                    deltas.put(itemId, delta);
+                }
+            });
+            if (deltas.isEmpty()) {
+                return;
+            }
+
+            // item_stats лежит на шарде вещи, поэтому просмотры сохраняются по шардам
+            Map<Integer, Map<Long, Long>> deltasByShard = new HashMap<>();
+            deltas.forEach((itemId, delta) -> deltasByShard
+                    .computeIfAbsent(shardRouter.shardOfItem(itemId), shard -> new HashMap<>())
+                    .put(itemId, delta));
+            deltasByShard.forEach((shard, shardDeltas) -> {
+                try {
+                    ShardContext.run(shard, () -> itemStatsRepository.addViews(shardDeltas));
+                } catch (RuntimeException e) {
+                    log.warn("Не удалось сохранить просмотры {} вещей, повтор при следующем сбросе",
+                            shardDeltas.size(), e);
+                    shardDeltas.forEach((itemId, delta) -> recordViews(itemId, delta));
+                    return;
+                }
+                shardDeltas.forEach((itemId, delta) -> totals.merge(itemId, delta, Long::sum));
+            });
+            rebuildTop();
+            log.debug("Сохранены просмотры {} вещей", deltas.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void recordViews(Long itemId, long count) {
+        pending.computeIfAbsent(itemId, id -> new LongAdder()).add(count);
+    }
+
+    private void rebuildTop() {
+        topLock.lock();
+        try {
+            PriorityQueue<ItemViewsDto> heap = new PriorityQueue<>(topSize + 1, BY_VIEWS);
+            totals.forEach((itemId, views) -> {
+                heap.offer(new ItemViewsDto(itemId, views));
+                if (heap.size() > topSize) {
+                    heap.poll();
+                }
+            });
+            List<ItemViewsDto> sorted = heap.stream()
+                    .sorted(BY_VIEWS.reversed())
+                    .toList();
+            top = sorted;
+        } finally {
+            topLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.item.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+import ru.practicum.shareit.sharding.ShardContext;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Параллельная загрузка независимых частей карточки вещи (комментарии, бронирования).
+ * Каждая загрузка идёт в своей read-only транзакции на ограниченном пуле виртуальных потоков;
+ * при переполнении очереди задача выполняется в потоке запроса. Если режим выключен
+ * (shareit.item-view.parallel-fetch.enabled), загрузки выполняются сразу и последовательно.
+ * <p>
+ * Поток запроса ждёт загрузки, не держа соединение (spring.jpa.open-in-view=false): иначе запросы,
+ * занявшие весь пул Hikari, ждали бы задач, которым соединения уже не достанется.
+ */
+@Component
+public class ItemViewFetcher {
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+
+    public ItemViewFetcher(PlatformTransactionManager transactionManager,
+                           @Value("${shareit.item-view.parallel-fetch.enabled:false}") boolean enabled,
+                           @Value("${shareit.item-view.parallel-fetch.threads:8}") int threads,
+                           @Value("${shareit.item-view.parallel-fetch.queue-capacity:100}") int queueCapacity,
+                           @Value("${shareit.item-view.parallel-fetch.timeout:2s}") Duration timeout) {
+        this.enabled = enabled;
+        this.timeoutNanos = timeout.toNanos();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.executor = enabled
+                ? new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        Thread.ofVirtual().name("item-fetch-", 0).factory(),
+                        new ThreadPoolExecutor.CallerRunsPolicy())
+                : null;
+    }
+
+    public <T> Future<T> submit(Supplier<T> loader) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(loader.get());
+        }
+        // задача читает с того же шарда, что и запрос
+        Integer shard = ShardContext.current();
+        Supplier<T> task = () -> readOnlyTransaction.execute(status -> loader.get());
+        return executor.submit(() -> shard != null ? ShardContext.call(shard, task) : task.get());
+    }
+
+    // общий срок ожидания для всех загрузок одного запроса
+    public long deadline() {
+        return System.nanoTime() + timeoutNanos;
+    }
+
+    public <T> T await(Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new ServiceUnavailableException("Истекло время загрузки данных вещи");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new ServiceUnavailableException("Загрузка данных вещи прервана");
+        } catch (ExecutionException e) {
+            // ошибки загрузки (NotFoundException и т.п.) пробрасываются как есть
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public void cancel(Future<?>... futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
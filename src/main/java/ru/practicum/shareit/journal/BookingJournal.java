@@ -0,0 +1,300 @@
+package ru.practicum.shareit.journal;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал смен статусов бронирований: только дозапись в сегменты фиксированного размера, отображённые в память.
+ * <p>
+ * Запись - 40 байт: crc32 (4), bookingId (8), itemId (8), actorId (8), время в мс (8), старый статус (1),
+ * новый статус (1), резерв (2). Статус хранится как ordinal + 1, 0 - отсутствие статуса.
+ * Сброс на диск групповой, раз в shareit.journal.flush-interval, поэтому при падении ОС
+ * могут потеряться записи за последний интервал. Сброс идёт в собственном потоке, а не в общем планировщике
+ * Spring, чтобы долгие фоновые задачи не растягивали этот интервал.
+ * При старте хвост последнего сегмента проверяется по crc.
+ */
+@Slf4j
+@Component
+public class BookingJournal {
+    static final int RECORD_SIZE = 40;
+    private static final int PAYLOAD_OFFSET = 4;
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - PAYLOAD_OFFSET;
+    private static final String SEGMENT_PREFIX = "bookings-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    // append вызывается из потоков запросов и при смене сегмента пишет на диск:
+    // монитор здесь закреплял бы виртуальный поток за потоком-носителем на время ввода-вывода
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private int position;
+    private int flushedPosition;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("journal-flush").daemon().factory());
+
+    public BookingJournal(@Value("${shareit.journal.directory:journal}") Path directory,
+                          @Value("${shareit.journal.segment-size:64MB}") DataSize segmentSize,
+                          @Value("${shareit.journal.flush-interval:200}") long flushInterval) throws IOException {
+        this.directory = directory;
+        this.segmentSize = (int) Math.min(segmentSize.toBytes() / RECORD_SIZE, Integer.MAX_VALUE / RECORD_SIZE)
+                * RECORD_SIZE;
+        Files.createDirectories(directory);
+        recover();
+        flusher.scheduleWithFixedDelay(this::scheduledFlush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void append(JournalRecord record) {
+        lock.lock();
+        try {
+            if (position + RECORD_SIZE > segment.capacity()) {
+                roll();
+            }
+            write(segment, position, record);
+            position += RECORD_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // групповой сброс: один force на все записи, накопленные с прошлого вызова
+    public void flush() {
+        MappedByteBuffer buffer;
+        int from;
+        int to;
+        lock.lock();
+        try {
+            buffer = segment;
+            from = flushedPosition;
+            to = position;
+            flushedPosition = position;
+        } finally {
+            lock.unlock();
+        }
+        if (to > from) {
+            buffer.force(from, to - from);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    // исключение отменило бы все следующие запуски scheduleWithFixedDelay
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Не удалось сбросить журнал бронирований на диск", e);
+        }
+    }
+
+    // последовательный проход по всем записям журнала в порядке записи
+    public void replay(Consumer<JournalRecord> consumer) {
+        long currentIndex;
+        int currentLimit;
+        lock.lock();
+        try {
+            currentIndex = segmentIndex;
+            currentLimit = position;
+        } finally {
+            lock.unlock();
+        }
+
+        for (Path path : listSegments()) {
+            long index = indexOf(path);
+            if (index > currentIndex) {
+                break;
+            }
+            ByteBuffer buffer = map(path, FileChannel.MapMode.READ_ONLY);
+            int limit = index == currentIndex ? currentLimit : scan(buffer);
+            for (int pos = 0; pos < limit; pos += RECORD_SIZE) {
+                consumer.accept(read(buffer, pos));
+            }
+        }
+    }
+
+    public List<JournalRecord> findByBookingId(long bookingId) {
+        List<JournalRecord> result = new ArrayList<>();
+        replay(record -> {
+            if (record.getBookingId() == bookingId) {
+                result.add(record);
+            }
+        });
+        return result;
+    }
+
+    public List<JournalRecord> findByItemId(long itemId) {
+        List<JournalRecord> result = new ArrayList<>();
+        replay(record -> {
+            if (record.getItemId() == itemId) {
+                result.add(record);
+            }
+        });
+        return result;
+    }
+
+    private void recover() {
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+
+        Path last = segments.getLast();
+        segmentIndex = indexOf(last);
+        segment = map(last, FileChannel.MapMode.READ_WRITE);
+        position = scan(segment);
+        flushedPosition = position;
+
+        if (!isEmpty(segment, position)) {
+            // недописанная запись после сбоя: очищаем хвост, чтобы за ней не оказалось "живых" данных
+            for (int pos = position; pos < segment.capacity(); pos++) {
+                segment.put(pos, (byte) 0);
+            }
+            segment.force();
+            log.warn("В сегменте {} журнала бронирований повреждена запись на позиции {}, хвост очищен",
+                    last.getFileName(), position);
+        }
+        log.info("Журнал бронирований открыт: сегмент {}, записей в сегменте {}",
+                last.getFileName(), position / RECORD_SIZE);
+    }
+
+    private void roll() {
+        segment.force(flushedPosition, position - flushedPosition);
+        openSegment(segmentIndex + 1);
+    }
+
+    private void openSegment(long index) {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала " + path, e);
+        }
+        segmentIndex = index;
+        position = 0;
+        flushedPosition = 0;
+    }
+
+    // позиция за последней корректной записью
+    private static int scan(ByteBuffer buffer) {
+        int pos = 0;
+        while (pos + RECORD_SIZE <= buffer.capacity() && isValid(buffer, pos)) {
+            pos += RECORD_SIZE;
+        }
+        return pos;
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int pos) {
+        return buffer.getLong(pos + PAYLOAD_OFFSET) != 0 && buffer.getInt(pos) == crc(buffer, pos);
+    }
+
+    // нет ли ненулевых байт от pos до конца сегмента
+    private static boolean isEmpty(ByteBuffer buffer, int pos) {
+        for (int i = pos; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int crc(ByteBuffer buffer, int pos) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(pos + PAYLOAD_OFFSET, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    private static void write(ByteBuffer buffer, int pos, JournalRecord record) {
+        buffer.putLong(pos + 4, record.getBookingId());
+        buffer.putLong(pos + 12, record.getItemId());
+        buffer.putLong(pos + 20, record.getActorId());
+        buffer.putLong(pos + 28, record.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.put(pos + 36, encode(record.getOldStatus()));
+        buffer.put(pos + 37, encode(record.getNewStatus()));
+        buffer.putShort(pos + 38, (short) 0);
+        buffer.putInt(pos, crc(buffer, pos));
+    }
+
+    private static JournalRecord read(ByteBuffer buffer, int pos) {
+        return new JournalRecord(
+                buffer.getLong(pos + 4),
+                buffer.getLong(pos + 12),
+                buffer.getLong(pos + 20),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(pos + 28)), ZoneOffset.UTC),
+                decode(buffer.get(pos + 36)),
+                decode(buffer.get(pos + 37))
+        );
+    }
+
+    private static byte encode(BookingStatus status) {
+        return status == null ? 0 : (byte) (status.ordinal() + 1);
+    }
+
+    private static BookingStatus decode(byte code) {
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать каталог журнала " + directory, e);
+        }
+    }
+
+    private static long indexOf(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode) {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[]{StandardOpenOption.READ}
+                : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть сегмент журнала " + path, e);
+        }
+    }
+}
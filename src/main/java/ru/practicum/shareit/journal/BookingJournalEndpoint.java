@@ -0,0 +1,25 @@
+package ru.practicum.shareit.journal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+// GET - только сверка, POST - сверка с дозаписью недостающих переходов
+@Component
+@Endpoint(id = "journal")
+@RequiredArgsConstructor
+public class BookingJournalEndpoint {
+    private final BookingJournalVerifier verifier;
+
+    @ReadOperation
+    public JournalVerificationDto verify() {
+        return verifier.verify(false);
+    }
+
+    @WriteOperation
+    public JournalVerificationDto repair() {
+        return verifier.verify(true);
+    }
+}
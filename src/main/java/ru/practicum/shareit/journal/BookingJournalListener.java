@@ -0,0 +1,27 @@
+package ru.practicum.shareit.journal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.booking.event.BookingStatusChangedEvent;
+
+// пишет в журнал только закоммиченные изменения и не удлиняет транзакцию бронирования
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingJournalListener {
+    private final BookingJournal journal;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onStatusChanged(BookingStatusChangedEvent event) {
+        try {
+            journal.append(new JournalRecord(event.getBookingId(), event.getItemId(), event.getActorId(),
+                    event.getOccurredAt(), event.getOldStatus(), event.getNewStatus()));
+        } catch (RuntimeException e) {
+            // бронирование уже сохранено; пропуск найдёт сверка с таблицей bookings
+            log.error("Не удалось записать в журнал событие {}", event, e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Сверка журнала с таблицей bookings: последний статус каждого бронирования в журнале
+ * должен совпадать с текущим. При repair недостающие переходы дописываются в журнал с actorId = 0.
+ * Записи по удалённым бронированиям (orphaned) не считаются ошибкой.
+ * <p>
+ * Журнал читается один раз: последний статус каждого бронирования раскладывается по диапазонам id
+ * размером shareit.journal.verify-chunk-size в массивы по байту на id, дальше таблица сверяется
+ * диапазон за диапазоном, и массив диапазона отпускается сразу после его сверки.
+ */
+@Slf4j
+@Component
+public class BookingJournalVerifier {
+    static final long REPAIR_ACTOR_ID = 0;
+    private static final BookingStatus[] STATUSES = BookingStatus.values();
+    // код в массиве диапазона: 0 - записей нет, NO_STATUS - запись без статуса, иначе ordinal + 1
+    private static final byte NO_STATUS = -1;
+    private static final int SAMPLE_SIZE = 100;
+
+    private final BookingJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final long chunkSize;
+
+    public BookingJournalVerifier(BookingJournal journal,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${shareit.journal.verify-chunk-size:50000}") long chunkSize) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    public JournalVerificationDto verify(boolean repair) {
+        JournalVerificationDto result = new JournalVerificationDto(0, 0, 0, 0, 0, 0,
+                new ArrayList<>(), new ArrayList<>());
+        long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM bookings", Long.class);
+        LocalDateTime now = LocalDateTime.now();
+
+        byte[][] ranges = new byte[Math.toIntExact(maxId / chunkSize + 1)][];
+        // записи по id за пределами таблицы заведомо orphaned, их бронирования считаются без повторов
+        Set<Long> beyondMax = new HashSet<>();
+        journal.replay(record -> {
+            result.setRecords(result.getRecords() + 1);
+            long bookingId = record.getBookingId();
+            if (bookingId < 0 || bookingId > maxId) {
+                beyondMax.add(bookingId);
+                return;
+            }
+            int range = (int) (bookingId / chunkSize);
+            if (ranges[range] == null) {
+                ranges[range] = new byte[(int) chunkSize];
+            }
+            ranges[range][(int) (bookingId % chunkSize)] = encode(record.getNewStatus());
+        });
+        result.setOrphaned(beyondMax.size());
+
+        for (int range = 0; range < ranges.length; range++) {
+            byte[] statuses = ranges[range] != null ? ranges[range] : new byte[0];
+            ranges[range] = null;
+            verifyRange(range * chunkSize, statuses, now, repair, result);
+        }
+
+        if (result.getMissing() + result.getMismatched() > 0) {
+            log.warn("Журнал бронирований расходится с таблицей: нет записей - {}, другой статус - {}, исправлено - {}",
+                    result.getMissing(), result.getMismatched(), result.getRepaired());
+        } else {
+            log.info("Журнал бронирований согласован с таблицей, проверено {} бронирований",
+                    result.getBookingsChecked());
+        }
+        return result;
+    }
+
+    // statuses пуст, если в журнале нет записей этого диапазона
+    private void verifyRange(long from, byte[] statuses, LocalDateTime now, boolean repair,
+                             JournalVerificationDto result) {
+        List<JournalRecord> repairs = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, item_id, status FROM bookings WHERE id BETWEEN ? AND ?", rs -> {
+            long bookingId = rs.getLong("id");
+            BookingStatus status = BookingStatus.valueOf(rs.getString("status"));
+            result.setBookingsChecked(result.getBookingsChecked() + 1);
+
+            int offset = (int) (bookingId - from);
+            byte code = statuses.length > 0 ? statuses[offset] : 0;
+            if (code == 0) {
+                result.setMissing(result.getMissing() + 1);
+                addSample(result.getMissingSample(), bookingId);
+            } else {
+                statuses[offset] = 0;
+                if (decode(code) == status) {
+                    return;
+                }
+                result.setMismatched(result.getMismatched() + 1);
+                addSample(result.getMismatchedSample(), bookingId);
+            }
+            repairs.add(new JournalRecord(bookingId, rs.getLong("item_id"), REPAIR_ACTOR_ID, now,
+                    decode(code), status));
+        }, from, from + chunkSize - 1);
+
+        // оставшиеся коды - бронирования, которых в таблице уже нет
+        long orphaned = 0;
+        for (byte code : statuses) {
+            if (code != 0) {
+                orphaned++;
+            }
+        }
+        result.setOrphaned(result.getOrphaned() + orphaned);
+
+        if (repair) {
+            repairs.forEach(journal::append);
+            result.setRepaired(result.getRepaired() + repairs.size());
+        }
+    }
+
+    private static byte encode(BookingStatus status) {
+        return status == null ? NO_STATUS : (byte) (status.ordinal() + 1);
+    }
+
+    private static BookingStatus decode(byte code) {
+        return code == 0 || code == NO_STATUS ? null : STATUSES[code - 1];
+    }
+
+    private static void addSample(List<Long> sample, long bookingId) {
+        if (sample.size() < SAMPLE_SIZE) {
+            sample.add(bookingId);
+        }
+    }
+}
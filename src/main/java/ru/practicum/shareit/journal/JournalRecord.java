@@ -0,0 +1,21 @@
+package ru.practicum.shareit.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+// запись журнала бронирований; oldStatus == null - бронирование создано
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+    private long bookingId;
+    private long itemId;
+    private long actorId;
+    private LocalDateTime timestamp;
+    private BookingStatus oldStatus;
+    private BookingStatus newStatus;
+}
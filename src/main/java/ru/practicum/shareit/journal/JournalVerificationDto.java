@@ -0,0 +1,21 @@
+package ru.practicum.shareit.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalVerificationDto {
+    private long records;
+    private long bookingsChecked;
+    private long missing;
+    private long mismatched;
+    private long orphaned;
+    private long repaired;
+    private List<Long> missingSample;
+    private List<Long> mismatchedSample;
+}
@@ -0,0 +1,117 @@
+package ru.practicum.shareit.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Скользящая гистограмма задержек одного метода.
+ * Окно разбито на интервалы, устаревший интервал обнуляется при первой записи в него.
+ * Корзины гистограммы - степени двойки в микросекундах.
+ */
+class MethodLatencyStats {
+    static final int BUCKETS = 26;
+
+    private final Slice[] slices;
+    private final long sliceNanos;
+    private final long baseNanos = System.nanoTime();
+
+    MethodLatencyStats(long windowNanos, int sliceCount) {
+        this.sliceNanos = windowNanos / sliceCount;
+        this.slices = new Slice[sliceCount];
+        for (int i = 0; i < sliceCount; i++) {
+            slices[i] = new Slice();
+        }
+    }
+
+    void record(long nowNanos, long durationNanos) {
+        long epoch = (nowNanos - baseNanos) / sliceNanos;
+        Slice slice = slices[(int) (epoch % slices.length)];
+        if (slice.epoch != epoch) {
+            slice.reset(epoch);
+        }
+        slice.count.increment();
+        slice.totalNanos.add(durationNanos);
+        slice.maxNanos.accumulate(durationNanos);
+        slice.buckets.incrementAndGet(bucketOf(durationNanos));
+    }
+
+    RepositoryLatencyDto snapshot(String method, long nowNanos) {
+        long currentEpoch = (nowNanos - baseNanos) / sliceNanos;
+        long count = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        long[] buckets = new long[BUCKETS];
+
+        for (Slice slice : slices) {
+            if (slice.epoch < 0 || currentEpoch - slice.epoch >= slices.length) {
+                continue;
+            }
+            count += slice.count.sum();
+            totalNanos += slice.totalNanos.sum();
+            maxNanos = Math.max(maxNanos, slice.maxNanos.get());
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += slice.buckets.get(i);
+            }
+        }
+
+        return new RepositoryLatencyDto(method, count,
+                toMillis(count > 0 ? totalNanos / count : 0),
+                toMillis(Math.min(maxNanos, percentile(buckets, count, 0.5))),
+                toMillis(Math.min(maxNanos, percentile(buckets, count, 0.99))),
+                toMillis(maxNanos));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static int bucketOf(long durationNanos) {
+        long micros = Math.max(1, durationNanos / 1000);
+        return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+    }
+
+    // верхняя граница корзины, в которую попал перцентиль
+    private static long percentile(long[] buckets, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * quantile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return (2L << i) * 1000;
+            }
+        }
+        return (2L << (BUCKETS - 1)) * 1000;
+    }
+
+    private static class Slice {
+        private volatile long epoch = -1;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private void reset(long newEpoch) {
+            lock.lock();
+            try {
+                if (epoch == newEpoch) {
+                    return;
+                }
+                count.reset();
+                totalNanos.reset();
+                maxNanos.reset();
+                for (int i = 0; i < BUCKETS; i++) {
+                    buckets.set(i, 0);
+                }
+                epoch = newEpoch;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RepositoryLatencyDto {
+    private String method;
+    private long count;
+    private double meanMs;
+    private double p50Ms;
+    private double p99Ms;
+    private double maxMs;
+}
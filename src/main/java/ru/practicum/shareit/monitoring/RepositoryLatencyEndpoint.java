@@ -0,0 +1,23 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Endpoint(id = "repositories")
+@RequiredArgsConstructor
+public class RepositoryLatencyEndpoint {
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final RepositoryLatencyRecorder recorder;
+
+    @ReadOperation
+    public List<RepositoryLatencyDto> slowest(@Nullable Integer limit) {
+        return recorder.getSlowest(limit != null && limit > 0 ? limit : DEFAULT_LIMIT);
+    }
+}
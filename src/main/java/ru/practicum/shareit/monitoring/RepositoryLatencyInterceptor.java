@@ -0,0 +1,57 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Замеряет время каждого вызова метода репозитория.
+ * В лог попадают только формы параметров (тип и размер), но не их значения.
+ */
+@RequiredArgsConstructor
+class RepositoryLatencyInterceptor implements MethodInterceptor {
+    private final String repositoryName;
+    private final RepositoryLatencyRecorder recorder;
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        boolean owner = SqlCaptureInspector.start();
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long duration = System.nanoTime() - start;
+            List<String> sql = owner ? SqlCaptureInspector.stop() : SqlCaptureInspector.current();
+            recorder.record(repositoryName + "." + invocation.getMethod().getName(), duration, sql,
+                    describe(invocation.getArguments()));
+        }
+    }
+
+    private static String describe(Object[] arguments) {
+        return Arrays.stream(arguments)
+                .map(RepositoryLatencyInterceptor::shapeOf)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static String shapeOf(Object argument) {
+        if (argument == null) {
+            return "null";
+        }
+        if (argument instanceof Collection<?> collection) {
+            return argument.getClass().getSimpleName() + "[" + collection.size() + "]";
+        }
+        if (argument instanceof CharSequence text) {
+            return "String(" + text.length() + ")";
+        }
+        if (argument instanceof Pageable pageable && pageable.isPaged()) {
+            return "Pageable(size=" + pageable.getPageSize() + ", sort=" + pageable.getSort() + ")";
+        }
+        return argument.getClass().getSimpleName();
+    }
+}
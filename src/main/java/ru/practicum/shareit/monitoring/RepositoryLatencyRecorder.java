@@ -0,0 +1,48 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class RepositoryLatencyRecorder {
+    private static final int SLICES = 10;
+
+    private final ConcurrentHashMap<String, MethodLatencyStats> stats = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final long slowThresholdNanos;
+
+    public RepositoryLatencyRecorder(@Value("${shareit.monitoring.latency-window:5m}") Duration window,
+                                     @Value("${shareit.monitoring.slow-query-threshold:200ms}") Duration threshold) {
+        this.windowNanos = window.toNanos();
+        this.slowThresholdNanos = threshold.toNanos();
+    }
+
+    public void record(String method, long durationNanos, List<String> sql, String parameterShapes) {
+        stats.computeIfAbsent(method, m -> new MethodLatencyStats(windowNanos, SLICES))
+                .record(System.nanoTime(), durationNanos);
+
+        if (durationNanos >= slowThresholdNanos) {
+            log.warn("Медленный запрос {}: {} мс, параметры: {}, SQL: {}",
+                    method, durationNanos / 1_000_000, parameterShapes, sql);
+        }
+    }
+
+    public List<RepositoryLatencyDto> getSlowest(int limit) {
+        long now = System.nanoTime();
+        return stats.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey(), now))
+                .filter(snapshot -> snapshot.getCount() > 0)
+                .sorted(Comparator.comparingDouble(RepositoryLatencyDto::getP99Ms)
+                        .thenComparingDouble(RepositoryLatencyDto::getMaxMs)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+}
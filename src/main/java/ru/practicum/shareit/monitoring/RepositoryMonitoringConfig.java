@@ -0,0 +1,29 @@
+package ru.practicum.shareit.monitoring;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+@Configuration
+public class RepositoryMonitoringConfig {
+
+    // перехватчик добавляется в прокси каждого Spring Data репозитория до его создания
+    @Bean
+    static BeanPostProcessor repositoryLatencyPostProcessor(ObjectProvider<RepositoryLatencyRecorder> recorder) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, information) ->
+                                    proxyFactory.addAdvice(new RepositoryLatencyInterceptor(
+                                            information.getRepositoryInterface().getSimpleName(),
+                                            recorder.getObject()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.spi.LoggingEventBuilder;
+import org.slf4j.spi.NOPLoggingEventBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Выборочное логирование запросов на чтение: в лог попадает только доля
+ * shareit.logging.read-sample-rate вызовов, для остальных событие не строится.
+ */
+@Component
+public class RequestLogSampler {
+    private final double sampleRate;
+
+    public RequestLogSampler(@Value("${shareit.logging.read-sample-rate}") double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("shareit.logging.read-sample-rate должен быть в диапазоне [0, 1]");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    public LoggingEventBuilder atInfo(Logger log) {
+        if (sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            return log.atInfo();
+        }
+        return NOPLoggingEventBuilder.singleton();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запоминает SQL, подготовленный Hibernate в текущем потоке, пока идёт вызов репозитория.
+ * Подключается через hibernate.session_factory.statement_inspector, поэтому состояние статическое.
+ */
+public class SqlCaptureInspector implements StatementInspector {
+    private static final int MAX_STATEMENTS = 20;
+    private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        List<String> statements = CAPTURED.get();
+        if (statements != null && statements.size() < MAX_STATEMENTS) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    // возвращает false, если захват уже идёт во внешнем вызове
+    static boolean start() {
+        if (CAPTURED.get() != null) {
+            return false;
+        }
+        CAPTURED.set(new ArrayList<>());
+        return true;
+    }
+
+    static List<String> stop() {
+        List<String> statements = CAPTURED.get();
+        CAPTURED.remove();
+        return statements != null ? statements : List.of();
+    }
+
+    static List<String> current() {
+        List<String> statements = CAPTURED.get();
+        return statements != null ? List.copyOf(statements) : List.of();
+    }
+}
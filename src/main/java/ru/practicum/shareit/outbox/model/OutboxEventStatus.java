@@ -0,0 +1,7 @@
+package ru.practicum.shareit.outbox.model;
+
+public enum OutboxEventStatus {
+    PENDING,
+    DELIVERED,
+    FAILED
+}
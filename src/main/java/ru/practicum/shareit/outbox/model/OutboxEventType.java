@@ -0,0 +1,19 @@
+package ru.practicum.shareit.outbox.model;
+
+// aggregate - вид сущности, к которой относится aggregateId события
+public enum OutboxEventType {
+    BOOKING_CREATED("booking"),
+    BOOKING_APPROVED("booking"),
+    BOOKING_REJECTED("booking"),
+    USER_CHANGED("user");
+
+    private final String aggregate;
+
+    OutboxEventType(String aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    public String getAggregate() {
+        return aggregate;
+    }
+}
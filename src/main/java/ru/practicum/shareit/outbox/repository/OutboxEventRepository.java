@@ -0,0 +1,36 @@
+package ru.practicum.shareit.outbox.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.model.OutboxEventStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // SKIP LOCKED (-2): несколько экземпляров приложения разбирают разные пачки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OutboxEvent e " +
+            "WHERE e.status = :status " +
+            "AND e.nextAttemptAt <= :now " +
+            "ORDER BY e.id")
+    List<OutboxEvent> findReadyForDispatch(@Param("status") OutboxEventStatus status,
+                                           @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e " +
+            "WHERE e.status = :status " +
+            "AND e.deliveredAt < :before")
+    int deleteDeliveredBefore(@Param("status") OutboxEventStatus status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.outbox.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Фоновая отправка событий outbox. Каждая пачка - отдельная транзакция; пока пачки приходят полными,
+ * очередь разбирается без паузы.
+ */
+@Slf4j
+@Component
+public class OutboxDispatcher {
+    private final OutboxService outboxService;
+    private final ShardRouter shardRouter;
+    private final Duration retention;
+
+    public OutboxDispatcher(OutboxService outboxService,
+                            ShardRouter shardRouter,
+                            @Value("${shareit.outbox.retention:7d}") Duration retention) {
+        this.outboxService = outboxService;
+        this.shardRouter = shardRouter;
+        this.retention = retention;
+    }
+
+    // события пишутся в транзакции бронирования, то есть на шард вещи: очередь разбирается на каждом шарде
+    @Scheduled(fixedDelayString = "${shareit.outbox.poll-interval:1000}")
+    public void dispatch() {
+        shardRouter.forEachShard(this::dispatchShard);
+    }
+
+    private void dispatchShard() {
+        try {
+            int sent;
+            do {
+                sent = outboxService.dispatchBatch();
+            } while (sent == outboxService.getBatchSize());
+        } catch (Exception e) {
+            log.warn("Ошибка при разборе outbox", e);
+        }
+    }
+
+    @Scheduled(cron = "${shareit.outbox.cleanup-cron:0 0 4 * * *}")
+    public void cleanup() {
+        shardRouter.forEachShard(() -> {
+            int deleted = outboxService.deleteDeliveredBefore(LocalDateTime.now().minus(retention));
+            log.info("Удалено {} доставленных событий outbox", deleted);
+        });
+    }
+}
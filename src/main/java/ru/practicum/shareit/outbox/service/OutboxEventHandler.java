@@ -0,0 +1,18 @@
+package ru.practicum.shareit.outbox.service;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+
+import java.util.List;
+
+/**
+ * Обработчик событий outbox внутри приложения: события его типа не уходят во внешний {@link
+ * ru.practicum.shareit.outbox.sink.OutboxSink}, а обрабатываются им в транзакции пачки.
+ * Доставка та же, "хотя бы один раз", с повторами при ошибке, поэтому обработка должна быть идемпотентной.
+ */
+public interface OutboxEventHandler {
+
+    OutboxEventType getType();
+
+    void handle(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,225 @@
+package ru.practicum.shareit.outbox.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.model.OutboxEventStatus;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.repository.OutboxEventRepository;
+import ru.practicum.shareit.outbox.sink.OutboxSink;
+import ru.practicum.shareit.sharding.ShardContext;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox: событие пишется в ту же транзакцию, что и изменение бронирования или пользователя,
+ * а доставка получателю идёт пачками в фоне (см. {@link OutboxDispatcher}). События, для типа которых есть
+ * {@link OutboxEventHandler}, обрабатываются им, остальные уходят в {@link OutboxSink}.
+ * <p>
+ * Если пачка целиком не ушла, события отправляются по одному: повтор и FAILED считаются для каждого
+ * события отдельно, и одно сбойное событие не держит остальные. Следующие события того же агрегата
+ * при этом ждут сбойное, чтобы не обогнать его.
+ */
+@Slf4j
+@Service
+public class OutboxService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final int NO_SHARD = -1;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink sink;
+    private final Map<OutboxEventType, OutboxEventHandler> handlers;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+
+    private final Counter deliveredCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer dispatchTimer;
+    // по шардам: каждый шард разбирает свою очередь, метрика показывает наибольшее отставание
+    private final Map<Integer, Long> lagMillis = new ConcurrentHashMap<>();
+
+    public OutboxService(OutboxEventRepository outboxEventRepository,
+                         OutboxSink sink,
+                         ObjectProvider<OutboxEventHandler> handlers,
+                         ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry,
+                         @Value("${shareit.outbox.batch-size:100}") int batchSize,
+                         @Value("${shareit.outbox.max-attempts:10}") int maxAttempts,
+                         @Value("${shareit.outbox.backoff-base:1s}") Duration backoffBase,
+                         @Value("${shareit.outbox.backoff-max:10m}") Duration backoffMax) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.handlers = handlers.orderedStream()
+                .collect(Collectors.toMap(OutboxEventHandler::getType, Function.identity()));
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+
+        this.deliveredCounter = meterRegistry.counter("shareit.outbox.events", "result", "delivered");
+        this.retriedCounter = meterRegistry.counter("shareit.outbox.events", "result", "retried");
+        this.failedCounter = meterRegistry.counter("shareit.outbox.events", "result", "failed");
+        this.dispatchTimer = meterRegistry.timer("shareit.outbox.dispatch");
+        Gauge.builder("shareit.outbox.lag", lagMillis,
+                        lags -> lags.values().stream().mapToLong(Long::longValue).max().orElse(0))
+                .baseUnit("milliseconds")
+                .description("Возраст самого старого события в последней пачке, наибольший по шардам")
+                .register(meterRegistry);
+    }
+
+    // вызывается только внутри транзакции, меняющей бронирование или пользователя
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void publish(OutboxEventType type, Long aggregateId, Object payload) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxEvent event = OutboxEvent.builder()
+                .aggregateId(aggregateId)
+                .type(type)
+                .payload(toJson(payload))
+                .status(OutboxEventStatus.PENDING)
+                .attempts(0)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+        outboxEventRepository.save(event);
+    }
+
+    // отправляет одну пачку готовых событий, возвращает её размер
+    @Transactional
+    public int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer shard = ShardContext.current();
+        Integer lagKey = shard != null ? shard : NO_SHARD;
+        List<OutboxEvent> batch = outboxEventRepository.findReadyForDispatch(
+                OutboxEventStatus.PENDING, now, PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            lagMillis.put(lagKey, 0L);
+            return 0;
+        }
+        lagMillis.put(lagKey, Duration.between(batch.getFirst().getCreatedAt(), now).toMillis());
+
+        Timer.Sample sample = Timer.start();
+        try {
+            deliver(batch);
+            LocalDateTime deliveredAt = LocalDateTime.now();
+            for (OutboxEvent event : batch) {
+                markDelivered(event, deliveredAt);
+            }
+        } catch (Exception e) {
+            log.warn("Не удалось отправить пачку из {} событий outbox, события отправляются по одному",
+                    batch.size(), e);
+            deliverOneByOne(batch, now);
+        } finally {
+            sample.stop(dispatchTimer);
+        }
+        return batch.size();
+    }
+
+    private void deliverOneByOne(List<OutboxEvent> batch, LocalDateTime now) {
+        // агрегат -> время, до которого его следующие события ждут не ушедшее
+        Map<String, LocalDateTime> blocked = new HashMap<>();
+        for (OutboxEvent event : batch) {
+            String aggregate = event.getType().getAggregate() + ":" + event.getAggregateId();
+            LocalDateTime blockedUntil = blocked.get(aggregate);
+            if (blockedUntil != null) {
+                event.setNextAttemptAt(blockedUntil);
+                continue;
+            }
+            try {
+                deliver(List.of(event));
+                markDelivered(event, LocalDateTime.now());
+            } catch (Exception e) {
+                scheduleRetry(event, now, e);
+                if (event.getStatus() == OutboxEventStatus.PENDING) {
+                    blocked.put(aggregate, event.getNextAttemptAt());
+                }
+            }
+        }
+    }
+
+    private void markDelivered(OutboxEvent event, LocalDateTime deliveredAt) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setStatus(OutboxEventStatus.DELIVERED);
+        event.setDeliveredAt(deliveredAt);
+        event.setLastError(null);
+        deliveredCounter.increment();
+    }
+
+    // порядок событий внутри типа сохраняется
+    private void deliver(List<OutboxEvent> batch) throws Exception {
+        Map<Boolean, List<OutboxEvent>> handled = batch.stream()
+                .collect(Collectors.partitioningBy(event -> handlers.containsKey(event.getType())));
+        Map<OutboxEventType, List<OutboxEvent>> byType = handled.get(true).stream()
+                .collect(Collectors.groupingBy(OutboxEvent::getType));
+        for (Map.Entry<OutboxEventType, List<OutboxEvent>> entry : byType.entrySet()) {
+            handlers.get(entry.getKey()).handle(entry.getValue());
+        }
+        if (!handled.get(false).isEmpty()) {
+            sink.deliver(handled.get(false));
+        }
+    }
+
+    @Transactional
+    public int deleteDeliveredBefore(LocalDateTime before) {
+        return outboxEventRepository.deleteDeliveredBefore(OutboxEventStatus.DELIVERED, before);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    private void scheduleRetry(OutboxEvent event, LocalDateTime now, Exception error) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(truncate(String.valueOf(error.getMessage())));
+        if (attempts >= maxAttempts) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            failedCounter.increment();
+            log.error("Событие outbox #{} {} не доставлено после {} попыток", event.getId(), event.getType(), attempts,
+                    error);
+            return;
+        }
+        event.setNextAttemptAt(now.plus(backoff(attempts)));
+        retriedCounter.increment();
+    }
+
+    // экспоненциальная задержка: base, 2*base, 4*base ... но не больше backoffMax
+    private Duration backoff(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        Duration delay = backoffBase.multipliedBy(1L << shift);
+        return delay.compareTo(backoffMax) > 0 ? backoffMax : delay;
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие outbox", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.outbox.sink;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// пишет каждую пачку строками "id<TAB>тип<TAB>payload" и сбрасывает её на диск одним fsync
+@Component
+@ConditionalOnProperty(name = "shareit.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+    private final Path path;
+
+    public FileOutboxSink(@Value("${shareit.outbox.file-path:outbox-events.log}") Path path) {
+        this.path = path;
+    }
+
+    @Override
+    public void deliver(List<OutboxEvent> events) throws IOException {
+        String lines = events.stream()
+                .map(event -> event.getId() + "\t" + event.getType() + "\t" + event.getPayload() + "\n")
+                .collect(Collectors.joining());
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
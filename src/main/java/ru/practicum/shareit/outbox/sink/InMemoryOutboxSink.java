@@ -0,0 +1,38 @@
+package ru.practicum.shareit.outbox.sink;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+// для тестов: хранит доставленные события в памяти, может отказывать в доставке пачек с выбранными событиями
+@Component
+@ConditionalOnProperty(name = "shareit.outbox.sink", havingValue = "memory")
+public class InMemoryOutboxSink implements OutboxSink {
+    private final List<OutboxEvent> delivered = new CopyOnWriteArrayList<>();
+    private volatile Predicate<OutboxEvent> failing = event -> false;
+
+    @Override
+    public void deliver(List<OutboxEvent> events) {
+        if (events.stream().anyMatch(failing)) {
+            throw new IllegalStateException("Получатель отклонил пачку из " + events.size() + " событий");
+        }
+        delivered.addAll(events);
+    }
+
+    public void failWhen(Predicate<OutboxEvent> failing) {
+        this.failing = failing;
+    }
+
+    public List<OutboxEvent> getDelivered() {
+        return List.copyOf(delivered);
+    }
+
+    public void clear() {
+        delivered.clear();
+        failing = event -> false;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.outbox.sink;
+
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Получатель событий из outbox. Доставка "хотя бы один раз": после ошибки события пачки отправляются
+ * повторно по одному, поэтому получатель должен уметь отбрасывать дубли по id события.
+ */
+public interface OutboxSink {
+
+    void deliver(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.purge.model;
+
+public enum PurgeTaskStatus {
+    PENDING,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package ru.practicum.shareit.purge.model;
+
+public enum PurgeTaskType {
+    USER,
+    ITEM
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.purge.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.service.BookingChangeStamps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Удаление зависимых строк порциями. Вызывается вне транзакции:
+ * каждый DELETE коммитится сразу и держит блокировки не дольше одной порции.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PurgeRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingChangeStamps changeStamps;
+
+    public int deleteCommentsByItemId(long itemId, int limit) {
+        return jdbcTemplate.update("DELETE FROM comments WHERE id IN " +
+                "(SELECT id FROM comments WHERE item_id = ? LIMIT ?)", itemId, limit);
+    }
+
+    public int deleteBookingsByItemId(long itemId, int limit) {
+        return deleteBookings(jdbcTemplate.queryForList(
+                "SELECT id FROM bookings WHERE item_id = ? ORDER BY id LIMIT ?", Long.class, itemId, limit));
+    }
+
+    public int deleteCommentsByAuthorId(long authorId, int limit) {
+        return jdbcTemplate.update("DELETE FROM comments WHERE id IN " +
+                "(SELECT id FROM comments WHERE author_id = ? LIMIT ?)", authorId, limit);
+    }
+
+    public int deleteBookingsByBookerId(long bookerId, int limit) {
+        return deleteBookings(jdbcTemplate.queryForList(
+                "SELECT id FROM bookings WHERE booker_id = ? ORDER BY id LIMIT ?", Long.class, bookerId, limit));
+    }
+
+    // включая уже помеченные удалёнными
+    public List<Long> findItemIdsByOwnerId(long ownerId) {
+        return jdbcTemplate.queryForList("SELECT id FROM items WHERE owner_id = ? ORDER BY id", Long.class, ownerId);
+    }
+
+    public List<Long> findCommentedItemIds(long authorId) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT item_id FROM comments WHERE author_id = ?",
+                Long.class, authorId);
+    }
+
+    public int deleteItem(long itemId) {
+        return jdbcTemplate.update("DELETE FROM items WHERE id = ? AND deleted = TRUE", itemId);
+    }
+
+    public int deleteUser(long userId) {
+        return jdbcTemplate.update("DELETE FROM users WHERE id = ? AND deleted = TRUE", userId);
+    }
+
+    // надгробие пишется до удаления строки: если порция прервётся между ними, повтор её не потеряет.
+    // Запись надгробия - своя короткая транзакция, чтобы BookingChangeStamps проверил возраст отметки до коммита
+    private int deleteBookings(List<Long> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+        String ids = String.join(",", Collections.nCopies(bookingIds.size(), "?"));
+        transactionTemplate.executeWithoutResult(status -> writeTombstones(bookingIds, ids));
+        return jdbcTemplate.update("DELETE FROM bookings WHERE id IN (" + ids + ")", bookingIds.toArray());
+    }
+
+    private void writeTombstones(List<Long> bookingIds, String ids) {
+        List<Object> args = new ArrayList<>(bookingIds);
+        args.add(changeStamps.stamp());
+        jdbcTemplate.update("MERGE INTO booking_tombstones t " +
+                "USING (SELECT b.id, b.booker_id, i.owner_id FROM bookings b " +
+                "JOIN items i ON i.id = b.item_id WHERE b.id IN (" + ids + ")) v " +
+                "ON t.booking_id = v.id " +
+                "WHEN NOT MATCHED THEN INSERT (booking_id, booker_id, owner_id, deleted_at) " +
+                "VALUES (v.id, v.booker_id, v.owner_id, ?)", args.toArray());
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.purge.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.purge.model.PurgeTask;
+import ru.practicum.shareit.purge.model.PurgeTaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface PurgeTaskRepository extends JpaRepository<PurgeTask, Long> {
+
+    // SKIP LOCKED (-2), как в outbox: экземпляры, захватывающие задачи одновременно, получают разные строки;
+    // задача с действующей арендой уже выполняется другим экземпляром
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT t FROM PurgeTask t " +
+            "WHERE t.status IN :statuses " +
+            "AND (t.leaseUntil IS NULL OR t.leaseUntil < :now) " +
+            "ORDER BY t.id")
+    List<PurgeTask> findClaimable(@Param("statuses") Collection<PurgeTaskStatus> statuses,
+                                  @Param("now") LocalDateTime now,
+                                  Pageable pageable);
+
+    List<PurgeTask> findByStatusInOrderByIdAsc(Collection<PurgeTaskStatus> statuses);
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.purge.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.purge.model.PurgeTask;
+
+import java.util.List;
+
+// незавершённые задачи очистки с прогрессом
+@Component
+@Endpoint(id = "purge")
+@RequiredArgsConstructor
+public class PurgeEndpoint {
+    private final PurgeService purgeService;
+
+    @ReadOperation
+    public List<PurgeTask> unfinished() {
+        return purgeService.getUnfinishedTasks();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.purge.service;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.purge.model.PurgeTask;
+import ru.practicum.shareit.purge.model.PurgeTaskStatus;
+import ru.practicum.shareit.purge.model.PurgeTaskType;
+import ru.practicum.shareit.purge.repository.PurgeTaskRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class PurgeService {
+    private final PurgeTaskRepository purgeTaskRepository;
+
+    // задача создаётся в той же транзакции, что и пометка удаления
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void enqueue(PurgeTaskType type, Long entityId) {
+        LocalDateTime now = LocalDateTime.now();
+        purgeTaskRepository.save(PurgeTask.builder()
+                .type(type)
+                .entityId(entityId)
+                .status(PurgeTaskStatus.PENDING)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    // захват следующей задачи: строка блокируется только на время этой транзакции, дальше задачу держит аренда
+    @Transactional
+    public Optional<PurgeTask> claimNext(Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<PurgeTask> claimed = purgeTaskRepository.findClaimable(
+                EnumSet.of(PurgeTaskStatus.RUNNING, PurgeTaskStatus.PENDING), now, PageRequest.of(0, 1))
+                .stream()
+                .findFirst();
+        claimed.ifPresent(task -> {
+            task.setStatus(PurgeTaskStatus.RUNNING);
+            task.setAttempts(task.getAttempts() + 1);
+            task.setLeaseUntil(now.plus(lease));
+            task.setUpdatedAt(now);
+        });
+        return claimed;
+    }
+
+    public List<PurgeTask> getUnfinishedTasks() {
+        return purgeTaskRepository.findByStatusInOrderByIdAsc(
+                EnumSet.of(PurgeTaskStatus.PENDING, PurgeTaskStatus.RUNNING, PurgeTaskStatus.FAILED));
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.shareit.purge.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.repository.BookingTombstoneRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSuggestionIndex;
+import ru.practicum.shareit.item.service.ItemViewCounter;
+import ru.practicum.shareit.purge.model.PurgeTask;
+import ru.practicum.shareit.purge.model.PurgeTaskStatus;
+import ru.practicum.shareit.purge.repository.PurgeRepository;
+import ru.practicum.shareit.purge.repository.PurgeTaskRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Фоновая очистка помеченных удалёнными пользователей и вещей.
+ * Зависимые строки удаляются порциями по chunk-size с паузой chunk-pause между ними,
+ * прогресс сохраняется в purge_tasks после каждой порции. Все шаги идемпотентны,
+ * поэтому прерванная задача (RUNNING) просто продолжается со следующего запуска.
+ * <p>
+ * Задача захватывается через SKIP LOCKED с арендой на shareit.purge.lease, аренда продлевается с каждой порцией:
+ * несколько экземпляров приложения не выполняют одну задачу одновременно, а задачу упавшего экземпляра
+ * подхватывают после истечения аренды. Очистка идёт в собственном потоке: паузы между порциями
+ * не занимают потоки общего планировщика.
+ */
+@Slf4j
+@Component
+public class Purger {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final PurgeTaskRepository purgeTaskRepository;
+    private final PurgeService purgeService;
+    private final PurgeRepository purgeRepository;
+    private final ItemRepository itemRepository;
+    private final ItemViewCounter itemViewCounter;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final BookingTombstoneRepository tombstoneRepository;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final int maxAttempts;
+    private final Duration tombstoneRetention;
+    private final Duration lease;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("purger").daemon().factory());
+
+    public Purger(PurgeTaskRepository purgeTaskRepository,
+                  PurgeService purgeService,
+                  PurgeRepository purgeRepository,
+                  ItemRepository itemRepository,
+                  ItemViewCounter itemViewCounter,
+                  ItemSuggestionIndex itemSuggestionIndex,
+                  BookingTombstoneRepository tombstoneRepository,
+                  ShardRouter shardRouter,
+                  @Value("${shareit.purge.chunk-size:500}") int chunkSize,
+                  @Value("${shareit.purge.chunk-pause:50ms}") Duration chunkPause,
+                  @Value("${shareit.purge.max-attempts:5}") int maxAttempts,
+                  @Value("${shareit.purge.lease:5m}") Duration lease,
+                  @Value("${shareit.purge.poll-interval:5000}") long pollInterval,
+                  @Value("${shareit.booking-changes.tombstone-retention:30d}") Duration tombstoneRetention) {
+        this.purgeTaskRepository = purgeTaskRepository;
+        this.purgeService = purgeService;
+        this.purgeRepository = purgeRepository;
+        this.itemRepository = itemRepository;
+        this.itemViewCounter = itemViewCounter;
+        this.itemSuggestionIndex = itemSuggestionIndex;
+        this.tombstoneRepository = tombstoneRepository;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.maxAttempts = maxAttempts;
+        this.tombstoneRetention = tombstoneRetention;
+        this.lease = lease;
+        worker.scheduleWithFixedDelay(this::purgeNext, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public void purgeNext() {
+        try {
+            shardRouter.forEachShard(this::purgeShard);
+        } catch (RuntimeException e) {
+            // исключение отменило бы все следующие запуски scheduleWithFixedDelay
+            log.error("Ошибка очистки удалённых данных", e);
+        }
+    }
+
+    // прерывает паузу между порциями; прерванная задача отпускает аренду и продолжится при следующем запуске
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        worker.shutdownNow();
+        worker.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    // надгробия старше срока хранения не нужны: токены синхронизации такой давности не принимаются
+    @Scheduled(cron = "${shareit.booking-changes.tombstone-cleanup-cron:0 45 4 * * *}")
+    public void cleanupTombstones() {
+        shardRouter.forEachShard(() -> {
+            int deleted = tombstoneRepository.deleteBefore(LocalDateTime.now().minus(tombstoneRetention));
+            log.info("Удалено {} надгробий бронирований", deleted);
+        });
+    }
+
+    private void purgeShard() {
+        PurgeTask task;
+        while ((task = purgeService.claimNext(lease).orElse(null)) != null) {
+            if (!run(task)) {
+                return;
+            }
+        }
+    }
+
+    private boolean run(PurgeTask task) {
+        try {
+            switch (task.getType()) {
+                case ITEM -> purgeItem(task, task.getEntityId());
+                case USER -> purgeUser(task);
+            }
+            task.setStatus(PurgeTaskStatus.DONE);
+            task.setLastError(null);
+            task.setLeaseUntil(null);
+            save(task);
+            log.info("Очистка {} с id: {} завершена, удалено строк: {}",
+                    task.getType(), task.getEntityId(), task.getDeletedRows());
+            return true;
+        } catch (InterruptedException e) {
+            task.setLeaseUntil(null);
+            save(task);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (RuntimeException e) {
+            String message = String.valueOf(e.getMessage());
+            task.setLastError(message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+            if (task.getAttempts() >= maxAttempts) {
+                task.setStatus(PurgeTaskStatus.FAILED);
+            }
+            // повтор со следующего запуска, как и до аренды
+            task.setLeaseUntil(null);
+            save(task);
+            log.error("Ошибка очистки {} с id: {}, попытка {}", task.getType(), task.getEntityId(),
+                    task.getAttempts(), e);
+            return false;
+        }
+    }
+
+    private void purgeItem(PurgeTask task, long itemId) throws InterruptedException {
+        deleteInChunks(task, () -> purgeRepository.deleteCommentsByItemId(itemId, chunkSize));
+        deleteInChunks(task, () -> purgeRepository.deleteBookingsByItemId(itemId, chunkSize));
+        addProgress(task, purgeRepository.deleteItem(itemId));
+        itemViewCounter.evict(itemId);
+        itemSuggestionIndex.remove(itemId);
+    }
+
+    private void purgeUser(PurgeTask task) throws InterruptedException {
+        long userId = task.getEntityId();
+        for (Long itemId : purgeRepository.findItemIdsByOwnerId(userId)) {
+            purgeItem(task, itemId);
+        }
+
+        // агрегаты комментариев у чужих вещей пересчитываются после удаления комментариев пользователя
+        List<Long> commentedItemIds = purgeRepository.findCommentedItemIds(userId);
+        deleteInChunks(task, () -> purgeRepository.deleteCommentsByAuthorId(userId, chunkSize));
+        for (Long itemId : commentedItemIds) {
+            itemRepository.reconcileCommentAggregates(itemId, itemId);
+        }
+
+        deleteInChunks(task, () -> purgeRepository.deleteBookingsByBookerId(userId, chunkSize));
+        addProgress(task, purgeRepository.deleteUser(userId));
+    }
+
+    private void deleteInChunks(PurgeTask task, IntSupplier chunk) throws InterruptedException {
+        int deleted;
+        do {
+            deleted = chunk.getAsInt();
+            if (deleted > 0) {
+                addProgress(task, deleted);
+                Thread.sleep(chunkPause);
+            }
+        } while (deleted == chunkSize);
+    }
+
+    private void addProgress(PurgeTask task, int deleted) {
+        if (deleted > 0) {
+            task.setDeletedRows(task.getDeletedRows() + deleted);
+            save(task);
+        }
+    }
+
+    private void save(PurgeTask task) {
+        LocalDateTime now = LocalDateTime.now();
+        task.setUpdatedAt(now);
+        if (task.getLeaseUntil() != null) {
+            task.setLeaseUntil(now.plus(lease));
+        }
+        purgeTaskRepository.save(task);
+    }
+}
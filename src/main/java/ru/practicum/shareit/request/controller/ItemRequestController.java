@@ -0,0 +1,50 @@
+package ru.practicum.shareit.request.controller;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.NewItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path = "/requests")
+@RequiredArgsConstructor
+@Validated
+public class ItemRequestController {
+    private final ItemRequestService itemRequestService;
+
+    @PostMapping
+    public ItemRequestDto createRequest(
+            @RequestBody @Valid NewItemRequestDto requestDto,
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        return itemRequestService.create(userId, requestDto);
+    }
+
+    // свои запросы с ответами, новые первыми
+    @GetMapping
+    public List<ItemRequestDto> getOwnRequests(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        return itemRequestService.getOwn(userId);
+    }
+
+    // запросы других пользователей, новые первыми
+    @GetMapping("/all")
+    public List<ItemRequestDto> getOtherRequests(
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+            @RequestParam(defaultValue = "0") Integer from,
+            @RequestParam(defaultValue = "10") Integer size) {
+        return itemRequestService.getOthers(userId, from, size);
+    }
+
+    @GetMapping("/{requestId}")
+    public ItemRequestDto getRequest(
+            @PathVariable @Positive Long requestId,
+            @RequestHeader("X-Sharer-User-Id") @Positive Long userId) {
+        return itemRequestService.getById(userId, requestId);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.request.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// тело POST /requests: id, дату и ответы задаёт сервер
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewItemRequestDto {
+    @NotBlank(message = "Описание запроса не может быть пустым")
+    @Size(max = 1000, message = "Описание запроса слишком длинное")
+    private String description;
+}
@@ -0,0 +1,32 @@
+package ru.practicum.shareit.request.mapper;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.ItemAnswerDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.util.List;
+
+@UtilityClass
+public class ItemRequestMapper {
+
+    public static ItemRequestDto toDto(ItemRequest request, List<ItemAnswerDto> items) {
+        return new ItemRequestDto(
+                request.getId(),
+                request.getDescription(),
+                request.getCreated(),
+                items
+        );
+    }
+
+    // владелец берётся из внешнего ключа, без загрузки пользователя
+    public static ItemAnswerDto toAnswerDto(Item item) {
+        return new ItemAnswerDto(
+                item.getId(),
+                item.getName(),
+                item.getOwner().getId(),
+                item.getRequestId()
+        );
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.request.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+
+    // по индексу (requester_id, created)
+    @Query("SELECT r FROM ItemRequest r WHERE r.requester.id = :requesterId ORDER BY r.created DESC, r.id DESC")
+    List<ItemRequest> findOwn(@Param("requesterId") Long requesterId);
+
+    // по индексу (created): страница читается с начала индекса, свои запросы и запросы удалённых
+    // пользователей отсеиваются по ходу
+    @Query("SELECT r FROM ItemRequest r JOIN r.requester u " +
+            "WHERE u.id <> :requesterId AND u.deleted = false " +
+            "ORDER BY r.created DESC, r.id DESC")
+    List<ItemRequest> findOthers(@Param("requesterId") Long requesterId, Pageable pageable);
+
+    // запрос удалённого пользователя не отдаётся, как и в findOthers
+    @Query("SELECT r FROM ItemRequest r JOIN r.requester u WHERE r.id = :requestId AND u.deleted = false")
+    Optional<ItemRequest> findActiveById(@Param("requestId") Long requestId);
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.request.service;
+
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.NewItemRequestDto;
+
+import java.util.List;
+
+public interface ItemRequestService {
+    ItemRequestDto create(Long userId, NewItemRequestDto requestDto);
+
+    List<ItemRequestDto> getOwn(Long userId);
+
+    List<ItemRequestDto> getOthers(Long userId, int from, int size);
+
+    ItemRequestDto getById(Long userId, Long requestId);
+
+    void checkExists(Long requestId);
+}
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.request.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.dto.ItemAnswerDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.NewItemRequestDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.sharding.ShardScatter;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Запросы вещей. Запросы хранятся на шарде 0, как и основная копия пользователей, а ответы - это вещи,
+ * которые лежат на шардах своих владельцев: они подгружаются для всей страницы запросов сразу,
+ * одним запросом request_id IN (...) на шард.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ItemRequestServiceImpl implements ItemRequestService {
+    private static final Comparator<ItemAnswerDto> ANSWER_ORDER = Comparator.comparing(ItemAnswerDto::getId);
+
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final UserService userService;
+    private final ShardRouter shardRouter;
+    private final ShardScatter shardScatter;
+
+    @Override
+    public ItemRequestDto create(Long userId, NewItemRequestDto requestDto) {
+        shardRouter.routeToPrimary();
+        User requester = userService.getUser(userId);
+        ItemRequest request = new ItemRequest(null, requestDto.getDescription(), requester,
+                LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        ItemRequest saved = itemRequestRepository.save(request);
+        log.info("Пользователь с id: {} создал запрос вещи с id: {}", userId, saved.getId());
+        return ItemRequestMapper.toDto(saved, List.of());
+    }
+
+    @Override
+    public List<ItemRequestDto> getOwn(Long userId) {
+        shardRouter.routeToPrimary();
+        userService.getUser(userId);
+        return withAnswers(itemRequestRepository.findOwn(userId));
+    }
+
+    @Override
+    public List<ItemRequestDto> getOthers(Long userId, int from, int size) {
+        validatePagination(from, size);
+        shardRouter.routeToPrimary();
+        userService.getUser(userId);
+        return withAnswers(itemRequestRepository.findOthers(userId, PageRequest.of(from / size, size)));
+    }
+
+    @Override
+    public ItemRequestDto getById(Long userId, Long requestId) {
+        shardRouter.routeToPrimary();
+        userService.getUser(userId);
+        ItemRequest request = itemRequestRepository.findActiveById(requestId)
+                .orElseThrow(() -> new NotFoundException("Запрос с ID " + requestId + " не найден"));
+        return withAnswers(List.of(request)).getFirst();
+    }
+
+    @Override
+    public void checkExists(Long requestId) {
+        shardRouter.routeToPrimary();
+        if (!itemRequestRepository.existsById(requestId)) {
+            throw new NotFoundException("Запрос с ID " + requestId + " не найден");
+        }
+    }
+
+    private List<ItemRequestDto> withAnswers(List<ItemRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        List<Long> requestIds = requests.stream()
+                .map(ItemRequest::getId)
+                .toList();
+        Map<Long, List<ItemAnswerDto>> answers = shardScatter.gatherSorted(() ->
+                        itemRepository.findAllByRequestIdInOrderById(requestIds).stream()
+                                .map(ItemRequestMapper::toAnswerDto)
+                                .toList(), ANSWER_ORDER).stream()
+                .collect(Collectors.groupingBy(ItemAnswerDto::getRequestId));
+        return requests.stream()
+                .map(request -> ItemRequestMapper.toDto(request, answers.getOrDefault(request.getId(), List.of())))
+                .toList();
+    }
+
+    private void validatePagination(int from, int size) {
+        if (from < 0) {
+            throw new ValidationException("Параметр 'from' не может быть отрицательным");
+        }
+        if (size <= 0) {
+            throw new ValidationException("Параметр 'size' должен быть положительным");
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.sharding;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Миграция V12: id таблиц шарда выдаются с шагом в число шардов и не пересекаются между шардами,
+ * поэтому по id вещи и бронирования находится шард, а сущности разных шардов не конфликтуют в одной сессии
+ * Hibernate. Номер шарда и их число передаёт {@link ShardingConfig} параметрами shardIndex и shardCount;
+ * без них (шардирование выключено) миграция ничего не меняет.
+ * <p>
+ * Как и любая миграция, выполняется на базе один раз: при следующих стартах DDL не повторяется.
+ * Число шардов после неё не меняется - перенос данных между шардами не поддерживается.
+ * Бин нужен автоконфигурации Flyway: она проверяет историю миграций шарда 0 и должна знать эту версию.
+ */
+@Slf4j
+@Component
+public class ShardIdStripingMigration implements JavaMigration {
+    static final String SHARD_INDEX = "shardIndex";
+    static final String SHARD_COUNT = "shardCount";
+    private static final List<String> STRIPED_TABLES =
+            List.of("items", "bookings", "comments", "outbox_events", "purge_tasks");
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("12");
+    }
+
+    @Override
+    public String getDescription() {
+        return "shard id striping";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        Map<String, String> placeholders = context.getConfiguration().getPlaceholders();
+        if (!placeholders.containsKey(SHARD_COUNT)) {
+            return;
+        }
+        int shard = Integer.parseInt(placeholders.get(SHARD_INDEX));
+        int shardCount = Integer.parseInt(placeholders.get(SHARD_COUNT));
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        for (String table : STRIPED_TABLES) {
+            // база могла быть размечена ещё до этой миграции
+            String increment = jdbcTemplate.queryForObject(
+                    "SELECT CAST(identity_increment AS VARCHAR(20)) FROM information_schema.columns " +
+                            "WHERE UPPER(table_name) = UPPER(?) AND UPPER(column_name) = 'ID'",
+                    String.class, table);
+            if (String.valueOf(shardCount).equals(increment)) {
+                continue;
+            }
+            // следующий id больше текущего максимума и даёт остаток shard + 1 по модулю числа шардов
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            long next = (maxId != null ? maxId : 0) + 1;
+            next += Math.floorMod(shard + 1 - next, (long) shardCount);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET INCREMENT BY " + shardCount);
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+        }
+        log.info("Id таблиц шарда {} выдаются с шагом {}", shard, shardCount);
+    }
+}
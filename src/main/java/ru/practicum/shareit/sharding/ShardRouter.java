@@ -0,0 +1,99 @@
+package ru.practicum.shareit.sharding;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Правила размещения данных по шардам.
+ * Вещь живёт на шарде владельца (owner_id mod N), её бронирования и комментарии - там же.
+ * Идентификаторы вещей, бронирований и комментариев на шарде k выдаются с шагом N начиная с k + 1,
+ * поэтому шард находится по самому id. Пользователи копируются на все шарды, запись идёт через шард 0.
+ * Без shareit.sharding.enabled шард один и все методы ничего не меняют.
+ */
+@Component
+public class ShardRouter {
+    private final int shardCount;
+
+    public ShardRouter(@Value("${shareit.sharding.enabled:false}") boolean enabled,
+                       @Value("${shareit.sharding.urls:}") List<String> urls) {
+        if (enabled && urls.isEmpty()) {
+            throw new IllegalStateException("Для шардирования нужно задать shareit.sharding.urls");
+        }
+        this.shardCount = enabled ? urls.size() : 1;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public List<Integer> shards() {
+        return IntStream.range(0, shardCount).boxed().toList();
+    }
+
+    public int shardOfOwner(Long ownerId) {
+        return (int) Math.floorMod(ownerId, (long) shardCount);
+    }
+
+    public int shardOfItem(Long itemId) {
+        return shardOfId(itemId);
+    }
+
+    public int shardOfBooking(Long bookingId) {
+        return shardOfId(bookingId);
+    }
+
+    // выставляют шард для оставшейся части запроса: до первого обращения к базе в транзакции
+    public void routeByOwner(Long ownerId) {
+        if (isSharded() && ownerId != null) {
+            ShardContext.set(shardOfOwner(ownerId));
+        }
+    }
+
+    public void routeByItem(Long itemId) {
+        if (isSharded() && itemId != null) {
+            ShardContext.set(shardOfItem(itemId));
+        }
+    }
+
+    public void routeByBooking(Long bookingId) {
+        if (isSharded() && bookingId != null) {
+            ShardContext.set(shardOfBooking(bookingId));
+        }
+    }
+
+    // запись пользователей идёт через шард 0, оттуда они копируются на остальные шарды
+    public void routeToPrimary() {
+        if (isSharded()) {
+            ShardContext.set(0);
+        }
+    }
+
+    // выполняет действие на каждом шарде по очереди, например в фоновых задачах
+    public void forEachShard(Runnable action) {
+        if (!isSharded()) {
+            action.run();
+            return;
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            ShardContext.run(shard, action);
+        }
+    }
+
+    // копии на шардах 1..N-1 для данных, которые пишутся через шард 0
+    public void forEachReplica(Runnable action) {
+        for (int shard = 1; shard < shardCount; shard++) {
+            ShardContext.run(shard, action);
+        }
+    }
+
+    private int shardOfId(Long id) {
+        return (int) Math.floorMod(id - 1, (long) shardCount);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.shareit.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Scatter-gather запросов, данные которых разнесены по шардам (например, бронирования арендатора).
+ * Запрос выполняется на всех шардах параллельно, каждый в своей read-only транзакции, результаты
+ * склеиваются слиянием уже отсортированных списков. Запрос должен сам превращать сущности в DTO:
+ * после транзакции ленивые связи недоступны. Без шардирования запрос выполняется как есть, в текущем потоке.
+ */
+@Component
+public class ShardScatter {
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long timeoutNanos;
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("shard-scatter-", 0).factory());
+
+    public ShardScatter(ShardRouter shardRouter,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${shareit.sharding.scatter-timeout:5s}") Duration timeout) {
+        this.shardRouter = shardRouter;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    // результаты всех шардов подряд, без упорядочивания
+    public <T> List<T> gather(Supplier<List<T>> query) {
+        if (!shardRouter.isSharded()) {
+            return query.get();
+        }
+        List<T> result = new ArrayList<>();
+        scatter(onAllShards(query)).forEach(result::addAll);
+        return result;
+    }
+
+    // слияние списков, каждый из которых уже отсортирован в порядке order
+    public <T> List<T> gatherSorted(Supplier<List<T>> query, Comparator<? super T> order) {
+        if (!shardRouter.isSharded()) {
+            return query.get();
+        }
+        return merge(scatter(onAllShards(query)), order);
+    }
+
+    // свой запрос для каждого шарда, например выборка вещей по id, сгруппированным по шардам
+    public <T> List<List<T>> scatter(Map<Integer, Supplier<List<T>>> queries) {
+        if (!shardRouter.isSharded()) {
+            return queries.values().stream().map(Supplier::get).toList();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<Future<List<T>>> futures = new ArrayList<>();
+        queries.forEach((shard, query) -> futures.add(executor.submit(() ->
+                ShardContext.call(shard, () -> readOnlyTransaction.execute(status -> query.get())))));
+
+        List<List<T>> results = new ArrayList<>();
+        try {
+            for (Future<List<T>> future : futures) {
+                results.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Истекло время ожидания ответа шардов");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Запрос к шардам прерван");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private <T> Map<Integer, Supplier<List<T>>> onAllShards(Supplier<List<T>> query) {
+        Map<Integer, Supplier<List<T>>> queries = new TreeMap<>();
+        shardRouter.shards().forEach(shard -> queries.put(shard, query));
+        return queries;
+    }
+
+    private static <T> List<T> merge(List<List<T>> sortedLists, Comparator<? super T> order) {
+        record Head<T>(T value, int list, int index) {
+        }
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.value(), b.value()));
+        int total = 0;
+        for (int i = 0; i < sortedLists.size(); i++) {
+            List<T> list = sortedLists.get(i);
+            total += list.size();
+            if (!list.isEmpty()) {
+                heads.add(new Head<>(list.getFirst(), i, 0));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value());
+            List<T> list = sortedLists.get(head.list());
+            int next = head.index() + 1;
+            if (next < list.size()) {
+                heads.add(new Head<>(list.get(next), head.list(), next));
+            }
+        }
+        return merged;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
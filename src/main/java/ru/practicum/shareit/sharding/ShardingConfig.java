@@ -0,0 +1,91 @@
+package ru.practicum.shareit.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник данных при включённом шардировании: по пулу соединений на каждый шард и маршрутизация
+ * по {@link ShardContext}. Соединение берётся лениво, при первом запросе в транзакции, поэтому
+ * сервис успевает выбрать шард уже внутри @Transactional метода.
+ * <p>
+ * Миграции схемы применяются к каждому шарду при старте, с номером шарда и числом шардов в параметрах:
+ * по ним {@link ShardIdStripingMigration} размечает id. Шарды заводятся пустыми: перенос данных
+ * существующей базы по шардам не выполняется.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "shareit.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+    @Bean
+    @Primary
+    public DataSource dataSource(@Value("${shareit.sharding.urls}") List<String> urls,
+                                 @Value("${spring.datasource.username}") String username,
+                                 @Value("${spring.datasource.password}") String password,
+                                 @Value("${shareit.sharding.pool-size:10}") int poolSize,
+                                 @Value("${spring.flyway.enabled:true}") boolean migrate,
+                                 @Value("${spring.flyway.locations:classpath:db/migration}") String[] locations,
+                                 @Value("${spring.flyway.baseline-on-migrate:false}") boolean baselineOnMigrate,
+                                 @Value("${spring.flyway.baseline-version:1}") String baselineVersion,
+                                 ShardIdStripingMigration stripingMigration) {
+        // автоконфигурация Flyway видит только маршрутизирующий источник, то есть шард 0
+        FluentConfiguration migrations = migrate
+                ? Flyway.configure()
+                        .locations(locations)
+                        .baselineOnMigrate(baselineOnMigrate)
+                        .baselineVersion(baselineVersion)
+                        .javaMigrations(stripingMigration)
+                : null;
+        Map<Object, Object> shards = new HashMap<>();
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setJdbcUrl(urls.get(shard));
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            initShard(dataSource, shard, urls.size(), migrations);
+            shards.put(shard, dataSource);
+        }
+
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(shards);
+        routing.setDefaultTargetDataSource(shards.get(0));
+        routing.afterPropertiesSet();
+        log.info("Шардирование включено, шардов: {}", urls.size());
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    // по умолчанию сессия Hibernate держит соединение до конца запроса (open-in-view), и все транзакции
+    // запроса шли бы на первый выбранный шард; здесь соединение возвращается в пул после каждой транзакции
+    @Bean
+    public HibernatePropertiesCustomizer shardConnectionHandling() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    private void initShard(DataSource dataSource, int shard, int shardCount, FluentConfiguration migrations) {
+        if (migrations != null) {
+            migrations.dataSource(dataSource)
+                    .placeholders(Map.of(ShardIdStripingMigration.SHARD_INDEX, String.valueOf(shard),
+                            ShardIdStripingMigration.SHARD_COUNT, String.valueOf(shardCount)))
+                    .load()
+                    .migrate();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.user.dto.UserBatchDto;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
@@ -31,11 +32,7 @@ public class UserController {
     @PatchMapping("/{userId}")
     public ResponseEntity<UserDto> updateUser(@PathVariable @Positive Long userId,
                                               @RequestBody UserDto userDto) {
-
-        User existingUser = userService.getUser(userId);
-        UserMapper.updateUserFromDto(userDto, existingUser);
-        User updated = userService.updateUser(userId, existingUser);
-
+        User updated = userService.updateUser(userId, UserMapper.toEntity(userDto));
         return ResponseEntity.ok(UserMapper.toDto(updated));
     }
 
@@ -54,6 +51,11 @@ public class UserController {
         return ResponseEntity.ok(dtos);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserBatchDto> getUsersByIds(@RequestParam List<@Positive Long> ids) {
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
     @DeleteMapping("/{userId}")
     public ResponseEntity<Void> deleteUser(@PathVariable @Positive Long userId) {
         userService.deleteUser(userId);
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.user.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+// пользователь создан или изменён на шарде 0; публикуется внутри транзакции сервиса
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class UserChangedEvent {
+    private final Long userId;
+}
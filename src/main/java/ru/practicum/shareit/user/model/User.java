@@ -2,11 +2,13 @@ package ru.practicum.shareit.user.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.util.Objects;
 
 @Entity
 @Table(name = "users")
+@SQLRestriction("deleted = false")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -22,6 +24,10 @@ public class User {
     @Column(name = "email", nullable = false, unique = true)
     private String email;
 
+    // мягкое удаление: строка скрыта из запросов и позже удаляется фоновой очисткой
+    @Column(nullable = false)
+    private boolean deleted;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
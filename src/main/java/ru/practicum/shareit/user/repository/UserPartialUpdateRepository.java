@@ -0,0 +1,12 @@
+package ru.practicum.shareit.user.repository;
+
+import ru.practicum.shareit.user.model.User;
+
+import java.util.Optional;
+
+public interface UserPartialUpdateRepository {
+
+    // одним запросом меняет только переданные (не null) поля и возвращает строку после записи;
+    // без полей - просто читает её. Пусто - пользователя нет или он удалён
+    Optional<User> updateFields(Long userId, String name, String email);
+}
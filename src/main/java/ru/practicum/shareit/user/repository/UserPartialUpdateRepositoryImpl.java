@@ -0,0 +1,59 @@
+package ru.practicum.shareit.user.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.Optional;
+
+// как и для вещей: строка возвращается тем же запросом (RETURNING в Postgres, FINAL TABLE в H2),
+// текст запроса зависит только от набора переданных полей
+public class UserPartialUpdateRepositoryImpl implements UserPartialUpdateRepository {
+    private static final String CONDITION = " WHERE id = :userId AND deleted = false";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile Boolean returningSupported;
+
+    @Transactional
+    @Override
+    public Optional<User> updateFields(Long userId, String name, String email) {
+        String sql;
+        if (name == null && email == null) {
+            sql = "SELECT * FROM users" + CONDITION;
+        } else {
+            String assignments = name != null && email != null ? "name = :name, email = :email"
+                    : name != null ? "name = :name" : "email = :email";
+            String update = "UPDATE users SET " + assignments + CONDITION;
+            sql = isReturningSupported() ? update + " RETURNING *" : "SELECT * FROM FINAL TABLE (" + update + ")";
+        }
+
+        Query query = entityManager.createNativeQuery(sql, User.class)
+                .setParameter("userId", userId);
+        if (name != null) {
+            query.setParameter("name", name);
+        }
+        if (email != null) {
+            query.setParameter("email", email);
+        }
+        @SuppressWarnings("unchecked")
+        List<User> users = query.getResultList();
+        return users.stream().findFirst();
+    }
+
+    private boolean isReturningSupported() {
+        Boolean supported = returningSupported;
+        if (supported == null) {
+            supported = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            returningSupported = supported;
+        }
+        return supported;
+    }
+}
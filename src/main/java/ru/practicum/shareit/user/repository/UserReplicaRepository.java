@@ -0,0 +1,25 @@
+package ru.practicum.shareit.user.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.model.User;
+
+// копии пользователей на шардах, кроме шарда 0: id берётся из основной записи
+@Repository
+@RequiredArgsConstructor
+public class UserReplicaRepository {
+    private static final String UPSERT_SQL =
+            "MERGE INTO users u " +
+            "USING (SELECT CAST(? AS BIGINT) AS id, CAST(? AS VARCHAR(255)) AS name, " +
+            "CAST(? AS VARCHAR(255)) AS email, CAST(? AS BOOLEAN) AS deleted) v " +
+            "ON u.id = v.id " +
+            "WHEN MATCHED THEN UPDATE SET name = v.name, email = v.email, deleted = v.deleted " +
+            "WHEN NOT MATCHED THEN INSERT (id, name, email, deleted) VALUES (v.id, v.name, v.email, v.deleted)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void upsert(User user) {
+        jdbcTemplate.update(UPSERT_SQL, user.getId(), user.getName(), user.getEmail(), user.isDeleted());
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.service.OutboxEventHandler;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.event.UserChangedEvent;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserReplicaRepository;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Копирование пользователей с шарда 0 на остальные шарды через outbox: событие USER_CHANGED пишется
+ * в транзакции изменения пользователя, поэтому копия не теряется при падении между записями.
+ * Копируется текущая строка с шарда 0, а не содержимое события: повторы и события, пришедшие
+ * не по порядку, приводят копии к одному и тому же последнему состоянию.
+ * <p>
+ * Чтобы только что созданный пользователь сразу мог завести вещь на своём шарде, копия делается ещё и
+ * сразу после коммита ({@link UserChangedEvent}); событие outbox остаётся гарантией на случай ошибки.
+ */
+@Slf4j
+@Component
+public class UserReplicator implements OutboxEventHandler {
+    private final UserRepository userRepository;
+    private final UserReplicaRepository userReplicaRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate replicaTransaction;
+
+    public UserReplicator(UserRepository userRepository,
+                          UserReplicaRepository userReplicaRepository,
+                          ShardRouter shardRouter,
+                          PlatformTransactionManager transactionManager) {
+        this.userRepository = userRepository;
+        this.userReplicaRepository = userReplicaRepository;
+        this.shardRouter = shardRouter;
+        // транзакция пачки держит соединение шарда 0, запись копии идёт в своей транзакции на своём шарде
+        this.replicaTransaction = new TransactionTemplate(transactionManager);
+        this.replicaTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public OutboxEventType getType() {
+        return OutboxEventType.USER_CHANGED;
+    }
+
+    @Override
+    public void handle(List<OutboxEvent> events) {
+        replicate(events.stream().map(OutboxEvent::getAggregateId).distinct().toList());
+    }
+
+    // сервис пользователей уже выставил шард 0
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserChanged(UserChangedEvent event) {
+        try {
+            replicate(List.of(event.getUserId()));
+        } catch (RuntimeException e) {
+            log.warn("Копии пользователя с id: {} обновятся из outbox: {}", event.getUserId(), e.getMessage());
+        }
+    }
+
+    // читает с шарда 0, поэтому вызывается без выставленного шарда или на шарде 0.
+    // Удалённого пользователя на копиях помечает сам deleteUser на каждом шарде
+    private void replicate(Collection<Long> userIds) {
+        List<User> users = replicaTransaction.execute(status -> userRepository.findAllById(userIds));
+        shardRouter.forEachReplica(() -> replicaTransaction.executeWithoutResult(
+                status -> users.forEach(userReplicaRepository::upsert)));
+    }
+}
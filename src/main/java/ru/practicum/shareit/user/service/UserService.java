@@ -1,5 +1,6 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.user.dto.UserBatchDto;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
@@ -13,5 +14,7 @@ public interface UserService {
 
     List<User> getAllUsers();
 
+    UserBatchDto getUsersByIds(List<Long> ids);
+
     void deleteUser(Long id);
 }
@@ -1,42 +1,76 @@
 package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.shareit.exceptions.ConflictException;
 import ru.practicum.shareit.exceptions.NotFoundException;
 import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.service.OutboxService;
+import ru.practicum.shareit.purge.model.PurgeTaskType;
+import ru.practicum.shareit.purge.service.PurgeService;
+import ru.practicum.shareit.sharding.ShardRouter;
+import ru.practicum.shareit.user.dto.UserBatchDto;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.event.UserChangedEvent;
+import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final CommentRepository commentRepository;
+    private final PurgeService purgeService;
+    private final ShardRouter shardRouter;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public User createUser(User user) {
+        shardRouter.routeToPrimary();
         validateEmailForCreate(user);
-        return userRepository.save(user);
+        return transactionTemplate.execute(status -> {
+            User saved = userRepository.save(user);
+            publishReplication(saved);
+            return saved;
+        });
     }
 
+    // только переданные поля, одним запросом, который сразу возвращает строку после записи.
+    // Занятый email заранее не проверяется: его ловит уникальный индекс, в том числе у ещё не вычищенных
+    // удалённых пользователей
     @Override
     public User updateUser(Long userId, User userUpdate) {
-        User existingUser = userRepository.findById(userId)
-                .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
-
-        validateEmailForUpdate(userId, userUpdate.getEmail());
-
-        if (userUpdate.getName() != null) {
-            existingUser.setName(userUpdate.getName());
-        }
-        if (userUpdate.getEmail() != null) {
-            existingUser.setEmail(userUpdate.getEmail());
+        shardRouter.routeToPrimary();
+        try {
+            return transactionTemplate.execute(status -> {
+                User saved = userRepository.updateFields(userId, userUpdate.getName(), userUpdate.getEmail())
+                        .orElseThrow(() -> new NotFoundException("Пользователь не найден"));
+                publishReplication(saved);
+                return saved;
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("Email уже используется другим пользователем: " + userUpdate.getEmail());
         }
-
-        return userRepository.save(existingUser);
     }
 
     @Override
@@ -50,11 +84,50 @@ public class UserServiceImpl implements UserService {
         return userRepository.findAll();
     }
 
+    @Override
+    public UserBatchDto getUsersByIds(List<Long> userIds) {
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Нельзя запросить больше " + MAX_BATCH_SIZE + " пользователей за раз");
+        }
+        Map<Long, User> found = userRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<UserDto> users = ids.stream()
+                .filter(found::containsKey)
+                .map(id -> UserMapper.toDto(found.get(id)))
+                .toList();
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !found.containsKey(id))
+                .toList();
+        return new UserBatchDto(users, missingIds);
+    }
+
+    // пользователь и его вещи только помечаются удалёнными, зависимые строки удалит фоновая очистка.
+    // Его комментарии сразу перестают показываться, поэтому агрегаты вещей с ними пересчитываются здесь же.
+    // При шардировании это делается на каждом шарде: там лежат его бронирования и комментарии
     @Override
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        shardRouter.forEachShard(() -> transactionTemplate.executeWithoutResult(status -> {
+            if (userRepository.markDeleted(id) == 0) {
+                return;
+            }
+            itemRepository.markDeletedByOwnerId(id);
+            for (Long itemId : commentRepository.findItemIdsByAuthorId(id)) {
+                itemRepository.reconcileCommentAggregates(itemId, itemId);
+            }
+            purgeService.enqueue(PurgeTaskType.USER, id);
+        }));
     }
 
+    // событие outbox коммитится вместе с пользователем; копии обновляются сразу после коммита
+    // (UserReplicator), а если это не удалось - при разборе outbox
+    private void publishReplication(User user) {
+        if (shardRouter.isSharded()) {
+            outboxService.publish(OutboxEventType.USER_CHANGED, user.getId(), UserMapper.toDto(user));
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId()));
+        }
+    }
 
     private void validateEmailForCreate(User user) {
         if (user.getEmail() == null) {
@@ -65,19 +138,8 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    private void validateEmailForUpdate(Long userId, String newEmail) {
-        if (newEmail != null && emailExistsByOtherUser(userId, newEmail)) {
-            throw new ConflictException("Email уже используется другим пользователем: " + newEmail);
-        }
-    }
-
+    // учитывает и удалённых, но ещё не вычищенных пользователей: email у них ещё занят
     private boolean emailExists(String email) {
-        return userRepository.findAll().stream()
-                .anyMatch(u -> email.equals(u.getEmail()));
-    }
-
-    private boolean emailExistsByOtherUser(Long userId, String email) {
-        return userRepository.findAll().stream()
-                .anyMatch(u -> email.equals(u.getEmail()) && !u.getId().equals(userId));
+        return userRepository.existsByEmailIncludingDeleted(email);
     }
 }
@@ -0,0 +1,13 @@
+-- индексы под запросы BookingRepository, ItemRepository и CommentRepository;
+-- планы проверяет QueryPlanTests
+
+-- выборки арендатора: booker_id = ? ORDER BY start_date DESC
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date);
+-- префикс booker_id уже есть в idx_bookings_booker_start и idx_bookings_booker_updated
+DROP INDEX IF EXISTS idx_bookings_booker_id;
+
+-- последняя бронь вещи: item_id = ? AND status = 'APPROVED' AND end_date < ?, в том числе MAX(end_date)
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_end ON bookings (item_id, status, end_date);
+
+-- комментарии вещи страницами по id и пересчёт агрегатов; в Postgres внешний ключ индекс не создаёт
+CREATE INDEX IF NOT EXISTS idx_comments_item_id ON comments (item_id, id);
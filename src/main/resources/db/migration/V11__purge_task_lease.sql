@@ -0,0 +1,2 @@
+-- аренда задачи очистки: экземпляр, захвативший задачу, продлевает её после каждой порции
+ALTER TABLE purge_tasks ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
@@ -0,0 +1,13 @@
+-- агрегаты комментариев вещи и оценка в комментарии; для уже существующих комментариев агрегаты пересчитываются
+ALTER TABLE comments ADD COLUMN IF NOT EXISTS rating SMALLINT;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS comment_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS last_comment_at TIMESTAMP;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS rating_sum BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS rating_count BIGINT NOT NULL DEFAULT 0;
+
+UPDATE items SET
+    comment_count = (SELECT COUNT(*) FROM comments c WHERE c.item_id = items.id),
+    last_comment_at = (SELECT MAX(c.created) FROM comments c WHERE c.item_id = items.id),
+    rating_sum = (SELECT COALESCE(SUM(c.rating), 0) FROM comments c WHERE c.item_id = items.id),
+    rating_count = (SELECT COUNT(c.rating) FROM comments c WHERE c.item_id = items.id)
+WHERE EXISTS (SELECT 1 FROM comments c WHERE c.item_id = items.id);
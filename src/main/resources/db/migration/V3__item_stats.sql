@@ -0,0 +1,18 @@
+-- item_stats: просмотры и статистика бронирований вещи; бронирования досчитывает ItemStatsRecomputer
+CREATE TABLE IF NOT EXISTS item_stats (
+    item_id BIGINT PRIMARY KEY,
+    view_count BIGINT NOT NULL DEFAULT 0,
+    booking_count BIGINT NOT NULL DEFAULT 0,
+    approved_count BIGINT NOT NULL DEFAULT 0,
+    rejected_count BIGINT NOT NULL DEFAULT 0,
+    approved_seconds BIGINT NOT NULL DEFAULT 0,
+    lead_time_seconds BIGINT NOT NULL DEFAULT 0,
+    first_start TIMESTAMP,
+    last_end TIMESTAMP,
+
+    CONSTRAINT fk_item_stats_item FOREIGN KEY (item_id)
+        REFERENCES items(id) ON DELETE CASCADE
+);
+
+-- время создания брони нужно для lead_time_seconds; у существующих броней это время миграции
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
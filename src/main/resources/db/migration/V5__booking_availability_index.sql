@@ -0,0 +1,2 @@
+-- поиск свободных на период вещей: анти-join по подтверждённым бронированиям вещи
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_dates ON bookings (item_id, status, start_date, end_date);
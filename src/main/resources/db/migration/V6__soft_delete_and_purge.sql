@@ -0,0 +1,19 @@
+-- мягкое удаление пользователей и вещей, зависимые строки удаляются фоновой очисткой по задачам
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deleted BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS deleted BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- purge_tasks
+CREATE TABLE IF NOT EXISTS purge_tasks (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    deleted_rows BIGINT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    last_error VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS idx_purge_tasks_status ON purge_tasks (status, id);
+CREATE INDEX IF NOT EXISTS idx_comments_author_id ON comments (author_id);
@@ -0,0 +1,18 @@
+-- отметки изменений для ленты бронирований; у существующих строк это время миграции
+ALTER TABLE items ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
+-- booking_tombstones: удалённые очисткой бронирования, для синхронизации клиентов по изменениям
+CREATE TABLE IF NOT EXISTS booking_tombstones (
+    booking_id BIGINT PRIMARY KEY,
+    booker_id BIGINT NOT NULL,
+    owner_id BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_booking_tombstones_booker ON booking_tombstones (booker_id, deleted_at, booking_id);
+CREATE INDEX IF NOT EXISTS idx_booking_tombstones_owner ON booking_tombstones (owner_id, deleted_at, booking_id);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_updated ON bookings (booker_id, updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_updated ON bookings (item_id, updated_at, id);
+CREATE INDEX IF NOT EXISTS idx_items_owner_id ON items (owner_id);
@@ -0,0 +1,10 @@
+-- item_related: соседи вещи по совместным бронированиям, пересчитываются ItemRelatedRecomputer
+CREATE TABLE IF NOT EXISTS item_related (
+    item_id BIGINT NOT NULL,
+    related_item_id BIGINT NOT NULL,
+    score INT NOT NULL,
+    computed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (item_id, related_item_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_item_related_computed_at ON item_related (computed_at);
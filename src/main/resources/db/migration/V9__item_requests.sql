@@ -0,0 +1,14 @@
+-- requests: запросы вещей, хранятся на шарде 0; ответы - вещи с items.request_id, поэтому без внешнего ключа
+CREATE TABLE IF NOT EXISTS requests (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    description VARCHAR(1000) NOT NULL,
+    requester_id BIGINT NOT NULL,
+    created TIMESTAMP NOT NULL,
+
+    CONSTRAINT fk_requests_to_users FOREIGN KEY (requester_id)
+        REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, created);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (created);
+CREATE INDEX IF NOT EXISTS idx_items_request_id ON items (request_id);
@@ -0,0 +1,121 @@
+package ru.practicum.shareit.benchmark;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Время ItemRepository.findAvailableItemsByTextAndPeriod на Postgres: тот же SQL, что строит Hibernate для
+ * GET /items/search?start=&end=, на синтетических данных, с индексом idx_bookings_item_status_dates и без него.
+ * База должна быть пустой и отдельной: схема создаётся миграциями, после замера таблицы очищаются.
+ * Запуск: scripts/availability-search-benchmark.sh или -Dshareit.benchmark.jdbc-url=jdbc:postgresql://...
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "shareit.benchmark.jdbc-url", matches = "jdbc:postgresql:.+")
+class AvailabilitySearchBenchmark {
+	private static final int USERS = 1000;
+	private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 200_000);
+	private static final int BOOKINGS = Integer.getInteger("shareit.benchmark.bookings", 2_000_000);
+	private static final int WARMUP = 20;
+	private static final int ITERATIONS = Integer.getInteger("shareit.benchmark.iterations", 200);
+
+	private static final String TEXT = "дрель";
+	private static final LocalDateTime START = LocalDateTime.of(2025, 6, 7, 0, 0);
+	private static final LocalDateTime END = LocalDateTime.of(2025, 6, 9, 0, 0);
+	private static final PageRequest PAGE = PageRequest.of(0, 10, Sort.by("id"));
+
+	@Autowired
+	private ItemRepository itemRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+		registry.add("spring.datasource.url", () -> System.getProperty("shareit.benchmark.jdbc-url"));
+		registry.add("spring.datasource.username",
+				() -> System.getProperty("shareit.benchmark.username", "postgres"));
+		registry.add("spring.datasource.password",
+				() -> System.getProperty("shareit.benchmark.password", "postgres"));
+	}
+
+	@BeforeAll
+	void seed() {
+		if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class) > 0) {
+			throw new IllegalStateException("База для замера должна быть пустой: в ней уже есть вещи");
+		}
+		System.out.printf("Данные: %d вещей, %d бронирований%n", ITEMS, BOOKINGS);
+		jdbcTemplate.update("INSERT INTO users (name, email) " +
+				"SELECT 'user' || x, 'user' || x || '@mail.ru' FROM generate_series(1, ?) x", USERS);
+		jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) " +
+				"SELECT CASE WHEN x % 10 = 0 THEN 'Дрель ' || x ELSE 'Вещь ' || x END, 'Описание', x % 7 <> 0, " +
+				"(SELECT MIN(id) FROM users) + x % ? FROM generate_series(1, ?) x", USERS, ITEMS);
+		jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, status, item_id, booker_id) " +
+						"SELECT TIMESTAMP '2024-07-01' + (x * 7919 % 17520) * INTERVAL '1 hour', " +
+						"TIMESTAMP '2024-07-01' + (x * 7919 % 17520 + 24 + x % 72) * INTERVAL '1 hour', " +
+						"CASE x % 10 WHEN 0 THEN 'REJECTED' WHEN 1 THEN 'WAITING' ELSE 'APPROVED' END, " +
+						"(SELECT MIN(id) FROM items) + x % ?, (SELECT MIN(id) FROM users) + x % ? " +
+						"FROM generate_series(1, CAST(? AS BIGINT)) x",
+				ITEMS, USERS, BOOKINGS);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@AfterAll
+	void cleanUp() {
+		jdbcTemplate.execute("TRUNCATE bookings, items, users RESTART IDENTITY CASCADE");
+	}
+
+	@Test
+	void searchByPeriod() {
+		// оба замера в одной транзакции на весь прогон, чтобы накладные расходы были одинаковыми
+		report("С индексом", transactionTemplate.execute(status -> measure()));
+		// DDL в Postgres транзакционный: индекс удаляется только на время замера и возвращается откатом
+		long[] withoutIndex = transactionTemplate.execute(status -> {
+			status.setRollbackOnly();
+			jdbcTemplate.execute("DROP INDEX idx_bookings_item_status_dates");
+			return measure();
+		});
+		report("Без индекса", withoutIndex);
+	}
+
+	private long[] measure() {
+		for (int i = 0; i < WARMUP; i++) {
+			itemRepository.findAvailableItemsByTextAndPeriod(TEXT, START, END, PAGE);
+		}
+		long[] nanos = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			itemRepository.findAvailableItemsByTextAndPeriod(TEXT, START, END, PAGE);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		return nanos;
+	}
+
+	private static void report(String title, long[] sortedNanos) {
+		System.out.printf("%s: p50 %.2f мс, p95 %.2f мс, max %.2f мс (%d запросов)%n", title,
+				percentile(sortedNanos, 0.50), percentile(sortedNanos, 0.95),
+				sortedNanos[sortedNanos.length - 1] / 1e6, sortedNanos.length);
+	}
+
+	private static double percentile(long[] sortedNanos, double p) {
+		return sortedNanos[(int) Math.ceil(p * sortedNanos.length) - 1] / 1e6;
+	}
+}
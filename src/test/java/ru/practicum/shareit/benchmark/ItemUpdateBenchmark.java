@@ -0,0 +1,112 @@
+package ru.practicum.shareit.benchmark;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+
+import java.util.Arrays;
+
+/**
+ * Время ItemService.update (PATCH /items/{id}) на Postgres и число SQL-запросов на один вызов.
+ * Вещи меняются по кругу, каждое обновление меняет название. База должна быть пустой и отдельной:
+ * схема создаётся миграциями, после замера таблицы очищаются.
+ * Запуск: scripts/item-update-benchmark.sh или -Dshareit.benchmark.jdbc-url=jdbc:postgresql://...
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "shareit.benchmark.jdbc-url", matches = "jdbc:postgresql:.+")
+class ItemUpdateBenchmark {
+	private static final int USERS = 100;
+	private static final int ITEMS = Integer.getInteger("shareit.benchmark.items", 100_000);
+	private static final int WARMUP = 2_000;
+	private static final int ITERATIONS = Integer.getInteger("shareit.benchmark.iterations", 10_000);
+
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private long firstItemId;
+	private long firstUserId;
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+		registry.add("spring.datasource.url", () -> System.getProperty("shareit.benchmark.jdbc-url"));
+		registry.add("spring.datasource.username",
+				() -> System.getProperty("shareit.benchmark.username", "postgres"));
+		registry.add("spring.datasource.password",
+				() -> System.getProperty("shareit.benchmark.password", "postgres"));
+	}
+
+	@BeforeAll
+	void seed() {
+		if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class) > 0) {
+			throw new IllegalStateException("База для замера должна быть пустой: в ней уже есть вещи");
+		}
+		System.out.printf("Данные: %d вещей%n", ITEMS);
+		jdbcTemplate.update("INSERT INTO users (name, email) " +
+				"SELECT 'user' || x, 'user' || x || '@mail.ru' FROM generate_series(1, ?) x", USERS);
+		firstUserId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM users", Long.class);
+		// вещь с номером x принадлежит пользователю с номером x % USERS
+		jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) " +
+				"SELECT 'Вещь ' || x, 'Описание', TRUE, ? + x % ? FROM generate_series(0, ? - 1) x",
+				firstUserId, USERS, ITEMS);
+		firstItemId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM items", Long.class);
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	@AfterAll
+	void cleanUp() {
+		jdbcTemplate.execute("TRUNCATE items, users RESTART IDENTITY CASCADE");
+	}
+
+	@Test
+	void updateName() {
+		for (int i = 0; i < WARMUP; i++) {
+			update(i);
+		}
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		long[] nanos = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			long start = System.nanoTime();
+			update(WARMUP + i);
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		System.out.printf("PATCH /items: p50 %.3f мс, p95 %.3f мс, max %.2f мс, SQL-запросов на вызов %.2f " +
+						"(%d вызовов)%n",
+				percentile(nanos, 0.50), percentile(nanos, 0.95), nanos[nanos.length - 1] / 1e6,
+				(double) statistics.getPrepareStatementCount() / ITERATIONS, ITERATIONS);
+	}
+
+	private void update(int n) {
+		int index = n % ITEMS;
+		Item item = new Item();
+		item.setId(firstItemId + index);
+		item.setName("Вещь " + index + " v" + n);
+		Item updated = itemService.update(item, firstUserId + index % USERS);
+		if (!item.getName().equals(updated.getName())) {
+			throw new IllegalStateException("Обновление вернуло прежнее название: " + updated.getName());
+		}
+	}
+
+	private static double percentile(long[] sortedNanos, double p) {
+		return sortedNanos[(int) Math.ceil(p * sortedNanos.length) - 1] / 1e6;
+	}
+}
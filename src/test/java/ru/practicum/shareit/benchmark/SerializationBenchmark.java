@@ -0,0 +1,128 @@
+package ru.practicum.shareit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingShortDto;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Стоимость сериализации ответов в JSON, CBOR и Smile: процессорное время потока на один ответ и размер тела,
+ * без сжатия и с gzip. Мапперы собираются тем же Jackson2ObjectMapperBuilder, что и конвертеры Spring MVC.
+ * Запускается только явно: scripts/serialization-benchmark.sh или -Dshareit.benchmark=true.
+ */
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+class SerializationBenchmark {
+	private static final int BOOKINGS = 200;
+	private static final int ITEMS = 50;
+	private static final int COMMENTS_PER_ITEM = 10;
+	private static final int WARMUP = Integer.getInteger("shareit.benchmark.warmup", 2_000);
+	private static final int ITERATIONS = Integer.getInteger("shareit.benchmark.iterations", 5_000);
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+	private final LocalDateTime now = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	SerializationBenchmark() {
+		// JSON-конвертер Spring Boot дополнительно пишет даты строками, CBOR и Smile MVC собирает без настроек Boot
+		mappers.put("JSON", Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+		mappers.put("CBOR", Jackson2ObjectMapperBuilder.cbor().build());
+		mappers.put("Smile", Jackson2ObjectMapperBuilder.smile().build());
+	}
+
+	@Test
+	void bookings() throws IOException {
+		List<BookingDto> bookings = IntStream.rangeClosed(1, BOOKINGS)
+				.mapToObj(i -> new BookingDto((long) i,
+						ItemDto.builder().id(1000L + i % 40).name("Дрель " + i % 40)
+								.description("Ударная дрель с набором свёрл, модель " + i % 40).available(true)
+								.ownerId(7L).commentCount(12L).lastCommentAt(now).rating(4.5).build(),
+						new UserDto(42L, "Пользователь 42", "user42@mail.ru"),
+						now.plusDays(i), now.plusDays(i + 2), i % 3 == 0 ? "WAITING" : "APPROVED"))
+				.toList();
+		report("List<BookingDto> x" + BOOKINGS, bookings);
+	}
+
+	@Test
+	void itemsWithComments() throws IOException {
+		List<ItemWithCommentsAndBookingDto> items = IntStream.rangeClosed(1, ITEMS)
+				.mapToObj(i -> ItemWithCommentsAndBookingDto.builder()
+						.id((long) i).name("Вещь " + i).description("Описание вещи номер " + i).available(true)
+						.lastBooking(new BookingShortDto(10L * i, 42L, (long) i, now.minusDays(3), now.minusDays(1)))
+						.nextBooking(new BookingShortDto(10L * i + 1, 43L, (long) i, now.plusDays(1), now.plusDays(2)))
+						.comments(IntStream.rangeClosed(1, COMMENTS_PER_ITEM)
+								.mapToObj(c -> new CommentDto((long) (i * 100 + c), "Отзыв " + c + ": всё работает",
+										"Автор " + c, now.minusHours(c), c % 5 + 1))
+								.toList())
+						.commentsCursor((long) i * 100 + COMMENTS_PER_ITEM).commentCount(30L)
+						.lastCommentAt(now).rating(4.2).ownerId(7L)
+						.build())
+				.toList();
+		report("List<ItemWithCommentsAndBookingDto> x" + ITEMS + " (по " + COMMENTS_PER_ITEM + " отзывов)", items);
+	}
+
+	private void report(String title, Object body) throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add(title);
+		lines.add(String.format("  %-6s %10s %10s %14s %14s", "формат", "байт", "gzip", "CPU, мкс", "CPU+gzip, мкс"));
+		for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+			ObjectMapper mapper = entry.getValue();
+			byte[] plain = mapper.writeValueAsBytes(body);
+			byte[] gzipped = gzip(plain);
+			double cpu = cpuMicrosPerOp(() -> mapper.writeValueAsBytes(body));
+			double cpuGzip = cpuMicrosPerOp(() -> gzip(mapper.writeValueAsBytes(body)));
+			lines.add(String.format("  %-6s %10d %10d %14.1f %14.1f",
+					entry.getKey(), plain.length, gzipped.length, cpu, cpuGzip));
+		}
+		System.out.println(String.join(System.lineSeparator(), lines));
+	}
+
+	// процессорное время текущего потока, а не настенное: на него не влияют другие процессы на машине
+	private double cpuMicrosPerOp(Serialization serialization) throws IOException {
+		long sink = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			sink += serialization.run().length;
+		}
+		long start = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink += serialization.run().length;
+		}
+		long elapsed = threads.getCurrentThreadCpuTime() - start;
+		if (sink == 0) {
+			throw new IllegalStateException("Пустой результат сериализации");
+		}
+		return elapsed / 1_000.0 / ITERATIONS;
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(bytes);
+		}
+		return out.toByteArray();
+	}
+
+	@FunctionalInterface
+	private interface Serialization {
+		byte[] run() throws IOException;
+	}
+}
@@ -0,0 +1,164 @@
+package ru.practicum.shareit.booking;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingChangesDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingRequestDto;
+import ru.practicum.shareit.booking.service.BookingChangeFeed;
+import ru.practicum.shareit.booking.service.BookingChangeStamps;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// короткие задержки, чтобы не ждать секунды; страница из двух записей, чтобы проверить листание
+@SpringBootTest(properties = {
+		"shareit.booking-changes.page-size=2",
+		"shareit.booking-changes.settle-delay=300ms",
+		"shareit.booking-changes.max-stamp-age=150ms"})
+class BookingChangeFeedTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+	private static final long SETTLE_MILLIS = 400;
+
+	@Autowired
+	private BookingChangeFeed changeFeed;
+	@Autowired
+	private BookingChangeStamps changeStamps;
+	@Autowired
+	private BookingService bookingService;
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long ownerId;
+	private long bookerId;
+	private long itemId;
+
+	@BeforeEach
+	void setUp() {
+		ownerId = createUser();
+		bookerId = createUser();
+		Item item = new Item();
+		item.setName("Дрель");
+		item.setDescription("Ударная дрель");
+		item.setAvailable(true);
+		itemId = itemService.create(item, ownerId).getId();
+	}
+
+	@Test
+	void pagesCoverEveryChangeOnce() throws InterruptedException {
+		List<Long> created = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			created.add(book(i).getId());
+		}
+		Thread.sleep(SETTLE_MILLIS);
+
+		List<Long> seen = new ArrayList<>();
+		String token = null;
+		BookingChangesDto page;
+		do {
+			page = changeFeed.getBookerChanges(bookerId, token);
+			assertTrue(page.getChanged().size() <= 2);
+			page.getChanged().forEach(booking -> seen.add(booking.getId()));
+			token = page.getNextToken();
+		} while (page.isHasMore());
+
+		assertEquals(created, seen);
+		assertTrue(changeFeed.getBookerChanges(bookerId, token).getChanged().isEmpty(),
+				"после последней страницы изменений быть не должно");
+	}
+
+	@Test
+	void changeYoungerThanSettleDelayWaitsForNextRequest() throws InterruptedException {
+		String token = changeFeed.getOwnerChanges(ownerId, null).getNextToken();
+		BookingDto booking = book(0);
+
+		BookingChangesDto early = changeFeed.getOwnerChanges(ownerId, token);
+		assertTrue(early.getChanged().isEmpty(), "запись моложе settle-delay не должна попасть в ленту");
+
+		Thread.sleep(SETTLE_MILLIS);
+		BookingChangesDto settled = changeFeed.getOwnerChanges(ownerId, early.getNextToken());
+		assertEquals(List.of(booking.getId()), settled.getChanged().stream().map(BookingDto::getId).toList());
+	}
+
+	@Test
+	void updateAfterTokenIsReturnedAgain() throws InterruptedException {
+		BookingDto booking = book(0);
+		Thread.sleep(SETTLE_MILLIS);
+		String token = changeFeed.getBookerChanges(bookerId, null).getNextToken();
+
+		bookingService.respondToBooking(ownerId, booking.getId(), true);
+		Thread.sleep(SETTLE_MILLIS);
+
+		BookingChangesDto changes = changeFeed.getBookerChanges(bookerId, token);
+		assertEquals(1, changes.getChanged().size());
+		assertEquals("APPROVED", changes.getChanged().getFirst().getStatus());
+	}
+
+	@Test
+	void deletedBookingComesAsTombstone() throws InterruptedException {
+		String token = changeFeed.getBookerChanges(bookerId, null).getNextToken();
+		transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+				"INSERT INTO booking_tombstones (booking_id, booker_id, owner_id, deleted_at) VALUES (?, ?, ?, ?)",
+				Long.MAX_VALUE - bookerId, bookerId, ownerId, changeStamps.stamp()));
+		Thread.sleep(SETTLE_MILLIS);
+
+		BookingChangesDto changes = changeFeed.getBookerChanges(bookerId, token);
+		assertEquals(List.of(Long.MAX_VALUE - bookerId), changes.getDeleted());
+		assertFalse(changes.isHasMore());
+	}
+
+	@Test
+	void stampOlderThanMaxAgeRollsBack() {
+		String email = "slow" + SEQUENCE.incrementAndGet() + "@test.ru";
+		assertThrows(ServiceUnavailableException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+			changeStamps.stamp();
+			jdbcTemplate.update("INSERT INTO users (name, email) VALUES ('Медленный', ?)", email);
+			try {
+				Thread.sleep(SETTLE_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = ?",
+				Integer.class, email));
+	}
+
+	@Test
+	void malformedTokenIsRejected() {
+		assertThrows(ValidationException.class, () -> changeFeed.getBookerChanges(bookerId, "не токен"));
+	}
+
+	private BookingDto book(int day) {
+		LocalDateTime start = LocalDateTime.now().plusDays(day + 1);
+		return bookingService.addBooking(new BookingRequestDto(null, itemId, bookerId, start, start.plusHours(1)));
+	}
+
+	private long createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		return userService.createUser(new User(null, "Пользователь " + n, "feed" + n + "@test.ru", false)).getId();
+	}
+}
@@ -0,0 +1,188 @@
+package ru.practicum.shareit.booking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * GET /bookings/stream через настоящий HTTP: владелец и арендатор получают события о бронировании
+ * после коммита, посторонний подписчик - нет; подписка несуществующего пользователя и сверх лимита отклоняется.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class BookingStreamTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+	private static final long WAIT_SECONDS = 10;
+
+	@LocalServerPort
+	private int port;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+	private final List<InputStream> streams = new ArrayList<>();
+
+	private long ownerId;
+	private long bookerId;
+	private long itemId;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		ownerId = createUser("Владелец");
+		bookerId = createUser("Арендатор");
+		itemId = id(send("POST", "/items", ownerId,
+				Map.of("name", "Дрель", "description", "Ударная дрель", "available", true)));
+	}
+
+	@AfterEach
+	void closeStreams() throws IOException {
+		for (InputStream stream : streams) {
+			stream.close();
+		}
+	}
+
+	@Test
+	void ownerAndBookerReceiveBookingEvents() throws Exception {
+		BlockingQueue<String> owner = subscribe(ownerId);
+		BlockingQueue<String> booker = subscribe(bookerId);
+		BlockingQueue<String> stranger = subscribe(createUser("Посторонний"));
+
+		LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+		long bookingId = id(send("POST", "/bookings", bookerId,
+				Map.of("itemId", itemId, "start", start.toString(), "end", start.plusDays(1).toString())));
+		send("PATCH", "/bookings/" + bookingId + "?approved=true", ownerId, null);
+
+		for (BlockingQueue<String> lines : List.of(owner, booker)) {
+			String created = nextEvent(lines);
+			assertEquals("booking-created", eventName(created));
+			assertTrue(created.contains("\"bookingId\":" + bookingId), created);
+			assertTrue(created.contains("\"status\":\"WAITING\""), created);
+
+			String approved = nextEvent(lines);
+			assertEquals("booking-status-changed", eventName(approved));
+			assertTrue(approved.contains("\"status\":\"APPROVED\""), approved);
+		}
+		assertEquals(null, stranger.poll(500, TimeUnit.MILLISECONDS), "посторонний не должен получать событий");
+	}
+
+	@Test
+	void unknownUserCannotSubscribe() throws Exception {
+		assertEquals(HttpStatus.NOT_FOUND.value(), open(Long.MAX_VALUE).statusCode());
+	}
+
+	@Test
+	void subscriptionsPerUserAreLimited() throws Exception {
+		// shareit.booking-stream.max-per-user=5 в тестовом профиле
+		for (int i = 0; i < 5; i++) {
+			subscribe(bookerId);
+		}
+		HttpResponse<InputStream> rejected = open(bookerId);
+		streams.add(rejected.body());
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.statusCode());
+	}
+
+	// строки потока читаются в фоне; первая строка - комментарий о подключении
+	private BlockingQueue<String> subscribe(long userId) throws Exception {
+		HttpResponse<InputStream> response = open(userId);
+		assertEquals(HttpStatus.OK.value(), response.statusCode());
+		streams.add(response.body());
+		BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+		Thread.ofVirtual().start(() -> {
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					lines.add(line);
+				}
+			} catch (IOException e) {
+				// поток закрыт в конце теста
+			}
+		});
+		assertEquals(":connected", lines.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+		assertEquals("", lines.poll(WAIT_SECONDS, TimeUnit.SECONDS));
+		return lines;
+	}
+
+	private HttpResponse<InputStream> open(long userId) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/bookings/stream"))
+				.header("X-Sharer-User-Id", String.valueOf(userId))
+				.header("Accept", "text/event-stream")
+				.timeout(Duration.ofSeconds(WAIT_SECONDS))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	// событие SSE - строки до пустой строки; комментарии heartbeat пропускаются
+	private static String nextEvent(BlockingQueue<String> lines) throws InterruptedException {
+		StringBuilder event = new StringBuilder();
+		while (true) {
+			String line = lines.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+			assertNotNull(line, "событие не пришло за " + WAIT_SECONDS + " с");
+			if (line.isEmpty()) {
+				if (!event.isEmpty()) {
+					return event.toString();
+				}
+			} else if (!line.startsWith(":")) {
+				event.append(line).append('\n');
+			}
+		}
+	}
+
+	private static String eventName(String event) {
+		return event.lines()
+				.filter(line -> line.startsWith("event:"))
+				.map(line -> line.substring("event:".length()))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private long createUser(String name) throws Exception {
+		return id(send("POST", "/users", null,
+				Map.of("name", name, "email", "stream" + SEQUENCE.incrementAndGet() + "@test.ru")));
+	}
+
+	// JSON-запрос к REST API, ответ должен быть успешным
+	private String send(String method, String path, Long userId, Object body) throws Exception {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+						: HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+		if (userId != null) {
+			request.header("X-Sharer-User-Id", String.valueOf(userId));
+		}
+		HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(HttpStatus.OK.value(), response.statusCode(), method + " " + path + ": " + response.body());
+		return response.body();
+	}
+
+	private long id(String json) throws IOException {
+		return objectMapper.readTree(json).get("id").asLong();
+	}
+}
@@ -0,0 +1,104 @@
+package ru.practicum.shareit.item;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemCommentsTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private ItemRepository itemRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private MockMvc mockMvc;
+
+	private long ownerId;
+	private long itemId;
+
+	@BeforeEach
+	void setUp() {
+		ownerId = createUser();
+		Item item = new Item();
+		item.setName("Дрель");
+		item.setDescription("Дрель ударная");
+		item.setAvailable(true);
+		itemId = itemService.create(item, ownerId).getId();
+	}
+
+	@Test
+	void commentsOfDeletedUserLeaveListingsAndAggregates() throws Exception {
+		long commenterId = createUser();
+		long keptId = createUser();
+		comment(commenterId, "Отличная дрель", 5);
+		long kept = comment(keptId, "Нормально", 3);
+		assertEquals(2, itemRepository.findById(itemId).orElseThrow().getCommentCount());
+
+		userService.deleteUser(commenterId);
+
+		mockMvc.perform(get("/items").header("X-Sharer-User-Id", ownerId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].commentCount").value(1))
+				.andExpect(jsonPath("$[0].rating").value(3.0))
+				.andExpect(jsonPath("$[0].comments.length()").value(1))
+				.andExpect(jsonPath("$[0].comments[0].id").value(kept))
+				.andExpect(jsonPath("$[0].commentsCursor").value(nullValue()));
+
+		userService.deleteUser(keptId);
+
+		mockMvc.perform(get("/items").param("ids", String.valueOf(itemId)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items[0].commentCount").value(0))
+				.andExpect(jsonPath("$.items[0].comments", empty()))
+				.andExpect(jsonPath("$.items[0].commentsCursor").value(nullValue()));
+	}
+
+	@Test
+	void staleCountWithoutVisibleCommentsDoesNotBreakListing() throws Exception {
+		// агрегаты ещё не пересчитаны, а видимых комментариев нет
+		jdbcTemplate.update("UPDATE items SET comment_count = 3 WHERE id = ?", itemId);
+
+		mockMvc.perform(get("/items").header("X-Sharer-User-Id", ownerId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].comments", empty()))
+				.andExpect(jsonPath("$[0].commentsCursor").value(nullValue()));
+	}
+
+	// комментарий пишется напрямую: через сервис нужно завершённое бронирование
+	private long comment(long authorId, String text, int rating) {
+		jdbcTemplate.update("INSERT INTO comments (text, item_id, author_id, created, rating) " +
+				"VALUES (?, ?, ?, LOCALTIMESTAMP, ?)", text, itemId, authorId, rating);
+		itemRepository.reconcileCommentAggregates(itemId, itemId);
+		return jdbcTemplate.queryForObject("SELECT MAX(id) FROM comments WHERE item_id = ?", Long.class, itemId);
+	}
+
+	private long createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		return userService.createUser(new User(null, "Пользователь " + n, "comments" + n + "@test.ru", false)).getId();
+	}
+}
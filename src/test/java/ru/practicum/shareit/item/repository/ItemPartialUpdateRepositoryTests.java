@@ -0,0 +1,98 @@
+package ru.practicum.shareit.item.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ItemPartialUpdateRepositoryTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+	private static final LocalDateTime LONG_AGO = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+	@Autowired
+	private ItemRepository itemRepository;
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private long ownerId;
+	private long itemId;
+
+	@BeforeEach
+	void setUp() {
+		ownerId = createUser();
+		Item item = new Item();
+		item.setName("Дрель");
+		item.setDescription("Ударная дрель");
+		item.setAvailable(true);
+		itemId = itemService.create(item, ownerId).getId();
+		jdbcTemplate.update("UPDATE items SET updated_at = ?, comment_count = 3 WHERE id = ?", LONG_AGO, itemId);
+	}
+
+	@Test
+	void changesOnlyGivenFieldsAndReturnsRowAfterWrite() {
+		Item updated = itemRepository.updateFields(itemId, ownerId, null, "Дрель с набором свёрл", false)
+				.orElseThrow();
+
+		assertEquals(itemId, updated.getId());
+		assertEquals("Дрель", updated.getName());
+		assertEquals("Дрель с набором свёрл", updated.getDescription());
+		assertFalse(updated.getAvailable());
+		assertEquals(ownerId, updated.getOwner().getId());
+		assertEquals(3L, updated.getCommentCount(), "колонки, которые запрос не меняет, тоже возвращаются");
+		assertTrue(updated.getUpdatedAt().isAfter(LONG_AGO));
+		assertEquals(Map.of("NAME", "Дрель", "DESCRIPTION", "Дрель с набором свёрл", "AVAILABLE", false), row());
+	}
+
+	@Test
+	void otherOwnerChangesNothing() {
+		long strangerId = createUser();
+
+		assertTrue(itemRepository.updateFields(itemId, strangerId, "Чужая", null, null).isEmpty());
+		assertTrue(itemRepository.updateFields(itemId, strangerId, null, null, null).isEmpty());
+		assertEquals(Map.of("NAME", "Дрель", "DESCRIPTION", "Ударная дрель", "AVAILABLE", true), row());
+	}
+
+	@Test
+	void deletedOrMissingItemIsNotUpdated() {
+		jdbcTemplate.update("UPDATE items SET deleted = TRUE WHERE id = ?", itemId);
+
+		assertTrue(itemRepository.updateFields(itemId, ownerId, "Удалённая", null, null).isEmpty());
+		assertTrue(itemRepository.updateFields(Long.MAX_VALUE, ownerId, "Нет такой", null, null).isEmpty());
+		assertEquals("Дрель", row().get("NAME"));
+	}
+
+	@Test
+	void withoutFieldsRowIsReadWithSameCondition() {
+		Item item = itemRepository.updateFields(itemId, ownerId, null, null, null).orElseThrow();
+
+		assertEquals("Дрель", item.getName());
+		assertEquals(LONG_AGO, item.getUpdatedAt(), "без изменений updated_at не должен двигаться");
+	}
+
+	private Map<String, Object> row() {
+		return jdbcTemplate.queryForMap("SELECT name, description, available FROM items WHERE id = ?", itemId);
+	}
+
+	private long createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		return userService.createUser(new User(null, "Пользователь " + n, "update" + n + "@test.ru", false)).getId();
+	}
+}
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// индекс меняется только после коммита: откаченное удаление или изменение не должно попасть в подсказки
+@SpringBootTest
+class ItemSuggestionIndexTests {
+	@Autowired
+	private ItemSuggestionIndex itemSuggestionIndex;
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	// уникальное слово в названии, чтобы не пересекаться с вещами других тестов
+	private String word;
+	private long ownerId;
+	private long itemId;
+
+	@BeforeEach
+	void setUp() {
+		word = "подсказка" + UUID.randomUUID().toString().replace("-", "");
+		ownerId = userService.createUser(new User(null, "Владелец", word + "@test.ru", false)).getId();
+		itemId = itemService.create(item("Дрель " + word, true), ownerId).getId();
+	}
+
+	@Test
+	void createdItemIsSuggested() {
+		assertEquals(List.of(itemId), suggested());
+	}
+
+	@Test
+	void rolledBackDeleteKeepsSuggestion() {
+		transactionTemplate.executeWithoutResult(status -> {
+			itemService.delete(itemId, ownerId);
+			assertEquals(List.of(itemId), suggested(), "до коммита индекс меняться не должен");
+			status.setRollbackOnly();
+		});
+		assertEquals(List.of(itemId), suggested());
+	}
+
+	@Test
+	void committedDeleteRemovesSuggestion() {
+		transactionTemplate.executeWithoutResult(status -> {
+			itemService.delete(itemId, ownerId);
+			assertEquals(List.of(itemId), suggested());
+		});
+		assertTrue(suggested().isEmpty());
+	}
+
+	@Test
+	void rolledBackUpdateKeepsSuggestion() {
+		Item unavailable = item(null, false);
+		unavailable.setId(itemId);
+		transactionTemplate.executeWithoutResult(status -> {
+			itemService.update(unavailable, ownerId);
+			status.setRollbackOnly();
+		});
+		assertEquals(List.of(itemId), suggested());
+
+		itemService.update(unavailable, ownerId);
+		assertTrue(suggested().isEmpty());
+	}
+
+	private List<Long> suggested() {
+		return itemSuggestionIndex.suggest(word, 10).stream().map(ItemSuggestion::id).toList();
+	}
+
+	private static Item item(String name, boolean available) {
+		Item item = new Item();
+		item.setName(name);
+		item.setDescription(name == null ? null : "Ударная дрель");
+		item.setAvailable(available);
+		return item;
+	}
+}
@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemSuggestionTrieTests {
+	private static final int TOP_SIZE = 3;
+
+	private final ItemSuggestion drill = new ItemSuggestion(1L, "Ударная дрель", 5L, 20L);
+	private final ItemSuggestion drillSet = new ItemSuggestion(2L, "Дрель с набором свёрл", 9L, 40L);
+	private final ItemSuggestion cheapDrill = new ItemSuggestion(3L, "Дрель", 0L, 0L);
+	private final ItemSuggestion saw = new ItemSuggestion(4L, "Пила", 1L, 5L);
+
+	@Test
+	void findsByStartOfAnyWordInPopularityOrder() {
+		ItemSuggestionTrie trie = build(drill, drillSet, cheapDrill, saw);
+
+		assertEquals(List.of(drillSet, drill, cheapDrill), trie.find("дре", 10));
+		assertEquals(List.of(drill), trie.find("уд", 10));
+		assertEquals(List.of(drillSet), trie.find("  СВЕР", 10), "регистр, ё и пробелы не должны влиять на поиск");
+		assertTrue(trie.find("рель", 10).isEmpty(), "поиск идёт только с начала слова");
+		assertTrue(trie.find("", 10).isEmpty());
+	}
+
+	@Test
+	void topIsLimitedByTopSizeAndLimit() {
+		ItemSuggestionTrie trie = build(drill, drillSet, cheapDrill,
+				new ItemSuggestion(5L, "Дрель-миксер", 7L, 1L));
+
+		assertEquals(List.of(drillSet, new ItemSuggestion(5L, "Дрель-миксер", 7L, 1L), drill),
+				trie.find("д", 10));
+		assertEquals(List.of(drillSet), trie.find("д", 1));
+	}
+
+	@Test
+	void putMovesItemByNewNameAndPopularity() {
+		ItemSuggestionTrie trie = build(drill, drillSet, saw);
+
+		trie.put(new ItemSuggestion(1L, "Пила цепная", 10L, 50L));
+
+		assertEquals(List.of(drillSet), trie.find("дре", 10));
+		assertEquals(List.of(new ItemSuggestion(1L, "Пила цепная", 10L, 50L), saw), trie.find("пи", 10));
+		assertEquals(3, trie.size());
+	}
+
+	@Test
+	void putIntoEmptyTrieMatchesBuild() {
+		ItemSuggestionTrie trie = ItemSuggestionTrie.empty(TOP_SIZE);
+		for (ItemSuggestion suggestion : List.of(saw, cheapDrill, drill, drillSet)) {
+			trie.put(suggestion);
+		}
+		ItemSuggestionTrie built = build(drill, drillSet, cheapDrill, saw);
+
+		for (String prefix : List.of("д", "дрель", "дрель с", "у", "п", "н", "с")) {
+			assertEquals(built.find(prefix, 10), trie.find(prefix, 10), prefix);
+		}
+	}
+
+	@Test
+	void removeRestoresNextItemIntoTop() {
+		ItemSuggestion fourth = new ItemSuggestion(5L, "Дрель аккумуляторная", 1L, 1L);
+		ItemSuggestionTrie trie = build(drill, drillSet, cheapDrill, fourth);
+		assertEquals(List.of(drillSet, drill, fourth), trie.find("дрель", 10));
+
+		trie.remove(drillSet.id());
+		trie.remove(Long.MAX_VALUE);
+
+		assertEquals(List.of(drill, fourth, cheapDrill), trie.find("дрель", 10));
+		assertTrue(trie.find("свер", 10).isEmpty());
+		assertTrue(trie.find("дрель с", 10).isEmpty());
+		assertEquals(3, trie.size());
+	}
+
+	private static ItemSuggestionTrie build(ItemSuggestion... suggestions) {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			return ItemSuggestionTrie.build(List.of(suggestions), TOP_SIZE, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+import ru.practicum.shareit.item.dto.CommentDto;
+import ru.practicum.shareit.item.dto.ItemFields;
+import ru.practicum.shareit.item.dto.ItemWithCommentsAndBookingDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ItemViewCoalescerTests {
+	private static final ItemFields FIELDS = ItemFields.of(null, 10);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+	private final CountDownLatch loading = new CountDownLatch(1);
+	private final CountDownLatch releaseLoad = new CountDownLatch(1);
+	private final AtomicInteger loads = new AtomicInteger();
+
+	@AfterEach
+	void tearDown() {
+		releaseLoad.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentReadsShareOneLoadButGetTheirOwnCopies() throws Exception {
+		ItemViewCoalescer coalescer = coalescer(Duration.ofSeconds(5), 100);
+
+		Future<ItemWithCommentsAndBookingDto> leader = executor.submit(() -> coalescer.load(1L, false, FIELDS,
+				blockingLoader(card())));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		List<Future<ItemWithCommentsAndBookingDto>> waiters = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			waiters.add(executor.submit(() -> coalescer.load(1L, false, FIELDS, () -> fail("загрузка не одна"))));
+		}
+		awaitCount("coalesced", 5);
+		releaseLoad.countDown();
+
+		ItemWithCommentsAndBookingDto first = leader.get(5, TimeUnit.SECONDS);
+		first.getComments().getFirst().setText("Изменено одним запросом");
+		first.getComments().clear();
+		for (Future<ItemWithCommentsAndBookingDto> waiter : waiters) {
+			ItemWithCommentsAndBookingDto card = waiter.get(5, TimeUnit.SECONDS);
+			assertNotSame(first, card);
+			assertEquals(card(), card, "изменения одного запроса не должны быть видны другим");
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, count("loaded"));
+
+		// результат не кэшируется
+		coalescer.load(1L, false, FIELDS, () -> {
+			loads.incrementAndGet();
+			return card();
+		});
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void differentKeysAreLoadedSeparately() throws Exception {
+		ItemViewCoalescer coalescer = coalescer(Duration.ofSeconds(5), 100);
+		executor.submit(() -> coalescer.load(1L, false, FIELDS, blockingLoader(card())));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		ItemWithCommentsAndBookingDto ownerView = coalescer.load(1L, true, FIELDS, this::card);
+		ItemWithCommentsAndBookingDto otherItem = coalescer.load(2L, false, FIELDS, this::card);
+
+		assertEquals(card(), ownerView);
+		assertEquals(card(), otherItem);
+		assertEquals(0, count("coalesced"));
+	}
+
+	@Test
+	void waitersOverLimitAreRejected() throws Exception {
+		ItemViewCoalescer coalescer = coalescer(Duration.ofSeconds(5), 1);
+		Future<ItemWithCommentsAndBookingDto> leader = executor.submit(() -> coalescer.load(1L, false, FIELDS,
+				blockingLoader(card())));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		Future<ItemWithCommentsAndBookingDto> waiter = executor.submit(() -> coalescer.load(1L, false, FIELDS,
+				this::card));
+		awaitCount("coalesced", 1);
+
+		assertThrows(ServiceUnavailableException.class, () -> coalescer.load(1L, false, FIELDS, this::card));
+		assertEquals(1, count("rejected"));
+
+		releaseLoad.countDown();
+		assertEquals(card(), leader.get(5, TimeUnit.SECONDS));
+		assertEquals(card(), waiter.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void waiterGivesUpAfterTimeout() throws Exception {
+		ItemViewCoalescer coalescer = coalescer(Duration.ofMillis(100), 100);
+		Future<ItemWithCommentsAndBookingDto> leader = executor.submit(() -> coalescer.load(1L, false, FIELDS,
+				blockingLoader(card())));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		assertThrows(ServiceUnavailableException.class, () -> coalescer.load(1L, false, FIELDS, this::card));
+		assertEquals(1, count("timeout"));
+
+		// загрузивший запрос ожиданием не ограничен
+		releaseLoad.countDown();
+		assertEquals(card(), leader.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void waitersGetLoaderError() throws Exception {
+		ItemViewCoalescer coalescer = coalescer(Duration.ofSeconds(5), 100);
+		Future<ItemWithCommentsAndBookingDto> leader = executor.submit(() -> coalescer.load(1L, false, FIELDS, () -> {
+			blockingLoader(card()).get();
+			throw new NotFoundException("Вещь не найдена");
+		}));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		Future<ItemWithCommentsAndBookingDto> waiter = executor.submit(() -> coalescer.load(1L, false, FIELDS,
+				this::card));
+		awaitCount("coalesced", 1);
+		releaseLoad.countDown();
+
+		assertTrue(assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS))
+				.getCause() instanceof NotFoundException);
+		assertTrue(assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS))
+				.getCause() instanceof NotFoundException);
+	}
+
+	private ItemViewCoalescer coalescer(Duration waitTimeout, int maxWaiters) {
+		return new ItemViewCoalescer(meterRegistry, waitTimeout, maxWaiters);
+	}
+
+	// загрузка сообщает о начале и ждёт releaseLoad
+	private Supplier<ItemWithCommentsAndBookingDto> blockingLoader(ItemWithCommentsAndBookingDto result) {
+		return () -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			try {
+				if (!releaseLoad.await(5, TimeUnit.SECONDS)) {
+					throw new IllegalStateException("загрузку не отпустили");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+			return result;
+		};
+	}
+
+	private ItemWithCommentsAndBookingDto card() {
+		return ItemWithCommentsAndBookingDto.builder()
+				.id(1L)
+				.name("Дрель")
+				.comments(new ArrayList<>(List.of(new CommentDto(10L, "Хорошая", "Анна",
+						LocalDateTime.of(2024, 1, 1, 12, 0), 5))))
+				.commentCount(1L)
+				.build();
+	}
+
+	private double count(String result) {
+		return meterRegistry.counter("shareit.item-view.requests", "result", result).count();
+	}
+
+	// ждущий учитывается в счётчике до того, как начинает ждать
+	private void awaitCount(String result, int expected) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (count(result) < expected) {
+			if (System.nanoTime() > deadline) {
+				fail("не дождались " + expected + " запросов с результатом " + result);
+			}
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.item.repository.ItemStatsRepository;
+import ru.practicum.shareit.sharding.ShardRouter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemViewCounterTests {
+
+	@Test
+	void flushDuringLoadIsNotOverwrittenByLoadedTotals() throws Exception {
+		Map<Long, Long> stored = new ConcurrentHashMap<>(Map.of(1L, 5L));
+		CountDownLatch snapshotTaken = new CountDownLatch(1);
+		CountDownLatch releaseLoad = new CountDownLatch(1);
+		AtomicBoolean firstLoad = new AtomicBoolean(true);
+		ItemStatsRepository repository = new ItemStatsRepository(null) {
+			@Override
+			public Map<Long, Long> findAllViews() {
+				Map<Long, Long> snapshot = Map.copyOf(stored);
+				// первая загрузка прочитала базу и задерживается до того, как положит итоги в память
+				if (firstLoad.compareAndSet(true, false)) {
+					snapshotTaken.countDown();
+					await(releaseLoad);
+				}
+				return snapshot;
+			}
+
+			@Override
+			public void addViews(Map<Long, Long> deltas) {
+				deltas.forEach((itemId, delta) -> stored.merge(itemId, delta, Long::sum));
+			}
+		};
+		ItemViewCounter counter = new ItemViewCounter(repository, new ShardRouter(false, List.of()), 10);
+
+		Thread load = Thread.ofPlatform().start(counter::loadTotals);
+		assertTrue(snapshotTaken.await(5, TimeUnit.SECONDS));
+		counter.recordView(1L);
+		counter.recordView(1L);
+		CountDownLatch flushed = new CountDownLatch(1);
+		Thread flush = Thread.ofPlatform().start(() -> {
+			counter.flush();
+			flushed.countDown();
+		});
+
+		assertFalse(flushed.await(300, TimeUnit.MILLISECONDS), "сброс не должен идти во время загрузки");
+		releaseLoad.countDown();
+		load.join(5000);
+		flush.join(5000);
+
+		assertEquals(7L, stored.get(1L));
+		assertEquals(7L, counter.getViews(1L));
+		assertEquals(7L, counter.getMostViewed(1).getFirst().getViews());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.exceptions.ServiceUnavailableException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemViewFetcherTests {
+	private final List<Boolean> readOnlyTransactions = new CopyOnWriteArrayList<>();
+	// запоминает, какие транзакции открывались: загрузки должны идти в read-only
+	private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+		@Override
+		public TransactionStatus getTransaction(TransactionDefinition definition) {
+			readOnlyTransactions.add(definition.isReadOnly());
+			return new SimpleTransactionStatus();
+		}
+
+		@Override
+		public void commit(TransactionStatus status) {
+		}
+
+		@Override
+		public void rollback(TransactionStatus status) {
+		}
+	};
+
+	private ItemViewFetcher fetcher;
+
+	@AfterEach
+	void tearDown() {
+		fetcher.shutdown();
+	}
+
+	@Test
+	void loadsRunInParallelInReadOnlyTransactions() {
+		fetcher = new ItemViewFetcher(transactionManager, true, 2, 10, Duration.ofSeconds(5));
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		long deadline = fetcher.deadline();
+
+		// каждая загрузка ждёт другую: последовательно они бы не завершились
+		Future<String> comments = fetcher.submit(() -> meet(bothStarted, "комментарии"));
+		Future<String> bookings = fetcher.submit(() -> meet(bothStarted, "бронирования"));
+
+		assertEquals("комментарии", fetcher.await(comments, deadline));
+		assertEquals("бронирования", fetcher.await(bookings, deadline));
+		assertEquals(List.of(true, true), readOnlyTransactions);
+	}
+
+	@Test
+	void loadIsCancelledWhenDeadlinePasses() throws Exception {
+		fetcher = new ItemViewFetcher(transactionManager, true, 2, 10, Duration.ofMillis(100));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		long deadline = fetcher.deadline();
+
+		Future<String> slow = fetcher.submit(() -> {
+			started.countDown();
+			try {
+				Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+			return "поздно";
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertThrows(ServiceUnavailableException.class, () -> fetcher.await(slow, deadline));
+		assertTrue(slow.isCancelled());
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS), "загрузка должна быть прервана");
+	}
+
+	@Test
+	void deadlineIsSharedByAllLoadsOfRequest() throws Exception {
+		fetcher = new ItemViewFetcher(transactionManager, true, 2, 10, Duration.ofMillis(200));
+		CountDownLatch release = new CountDownLatch(1);
+		long deadline = fetcher.deadline();
+		Future<String> first = fetcher.submit(() -> {
+			await(release);
+			return "первая";
+		});
+		Future<String> second = fetcher.submit(() -> {
+			await(release);
+			return "вторая";
+		});
+
+		assertThrows(ServiceUnavailableException.class, () -> fetcher.await(first, deadline));
+		// срок уже вышел на первой загрузке: вторая не получает свои 200 мс
+		long startedAt = System.nanoTime();
+		assertThrows(ServiceUnavailableException.class, () -> fetcher.await(second, deadline));
+		assertTrue(System.nanoTime() - startedAt < TimeUnit.MILLISECONDS.toNanos(100));
+		release.countDown();
+	}
+
+	@Test
+	void loadErrorIsRethrownAsIs() {
+		fetcher = new ItemViewFetcher(transactionManager, true, 2, 10, Duration.ofSeconds(5));
+
+		Future<String> missing = fetcher.submit(() -> {
+			throw new NotFoundException("Вещь не найдена");
+		});
+
+		assertThrows(NotFoundException.class, () -> fetcher.await(missing, fetcher.deadline()));
+	}
+
+	@Test
+	void disabledFetcherLoadsInCallerThread() {
+		fetcher = new ItemViewFetcher(transactionManager, false, 2, 10, Duration.ofSeconds(5));
+		Thread caller = Thread.currentThread();
+
+		Future<Boolean> sameThread = fetcher.submit(() -> Thread.currentThread() == caller);
+
+		assertTrue(fetcher.await(sameThread, fetcher.deadline()));
+		assertTrue(readOnlyTransactions.isEmpty());
+	}
+
+	private static String meet(CountDownLatch latch, String result) {
+		latch.countDown();
+		await(latch);
+		return result;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			if (!latch.await(5, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("не дождались");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
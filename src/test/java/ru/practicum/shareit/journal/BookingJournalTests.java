@@ -0,0 +1,154 @@
+package ru.practicum.shareit.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingJournalTests {
+	// три записи на сегмент, чтобы смена сегмента случалась на нескольких записях
+	private static final DataSize SEGMENT_SIZE = DataSize.ofBytes(BookingJournal.RECORD_SIZE * 3L);
+	private static final LocalDateTime NOW = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+	@TempDir
+	private Path directory;
+
+	private BookingJournal journal;
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	@Test
+	void appendedRecordsReplayInOrderAcrossSegmentsAndReopen() throws Exception {
+		journal = open();
+		List<JournalRecord> written = new ArrayList<>();
+		for (long bookingId = 1; bookingId <= 7; bookingId++) {
+			JournalRecord record = record(bookingId, null, BookingStatus.WAITING);
+			journal.append(record);
+			written.add(record);
+		}
+
+		assertEquals(written, replay(journal));
+		assertEquals(3, segments().size());
+
+		journal.close();
+		journal = open();
+		assertEquals(written, replay(journal));
+
+		JournalRecord next = record(8, null, BookingStatus.WAITING);
+		journal.append(next);
+		written.add(next);
+		assertEquals(written, replay(journal));
+		assertEquals(3, segments().size());
+	}
+
+	@Test
+	void corruptedRecordAndEverythingAfterItAreDroppedOnReopen() throws Exception {
+		journal = open();
+		JournalRecord first = record(1, null, BookingStatus.WAITING);
+		journal.append(first);
+		journal.append(record(2, null, BookingStatus.WAITING));
+		journal.close();
+
+		// испорченный байт во второй записи: crc не сойдётся
+		corrupt(segments().getFirst(), BookingJournal.RECORD_SIZE + 10, (byte) 0x7F);
+
+		journal = open();
+		assertEquals(List.of(first), replay(journal));
+
+		JournalRecord appended = record(3, BookingStatus.WAITING, BookingStatus.APPROVED);
+		journal.append(appended);
+		journal.close();
+		journal = open();
+		assertEquals(List.of(first, appended), replay(journal));
+	}
+
+	@Test
+	void partiallyWrittenTailIsZeroedAndAppendsResumeAfterLastValidRecord() throws Exception {
+		journal = open();
+		JournalRecord first = record(1, null, BookingStatus.WAITING);
+		journal.append(first);
+		journal.close();
+
+		// недописанная запись: данные есть, crc нет
+		corrupt(segments().getFirst(), BookingJournal.RECORD_SIZE + 4, (byte) 5);
+
+		journal = open();
+		assertEquals(List.of(first), replay(journal));
+		ByteBuffer tail = ByteBuffer.wrap(Files.readAllBytes(segments().getFirst()));
+		for (int pos = BookingJournal.RECORD_SIZE; pos < tail.capacity(); pos++) {
+			assertEquals(0, tail.get(pos), "хвост сегмента не очищен на позиции " + pos);
+		}
+
+		JournalRecord second = record(2, null, BookingStatus.WAITING);
+		journal.append(second);
+		assertEquals(List.of(first, second), replay(journal));
+	}
+
+	@Test
+	void findByBookingIdCollectsRecordsFromAllSegments() throws Exception {
+		journal = open();
+		JournalRecord created = record(42, null, BookingStatus.WAITING);
+		JournalRecord approved = record(42, BookingStatus.WAITING, BookingStatus.APPROVED);
+		JournalRecord rejected = record(42, BookingStatus.APPROVED, BookingStatus.REJECTED);
+		journal.append(created);
+		for (long bookingId = 1; bookingId <= 3; bookingId++) {
+			journal.append(record(bookingId, null, BookingStatus.WAITING));
+		}
+		journal.append(approved);
+		for (long bookingId = 4; bookingId <= 6; bookingId++) {
+			journal.append(record(bookingId, null, BookingStatus.WAITING));
+		}
+		journal.append(rejected);
+
+		assertTrue(segments().size() > 2);
+		assertEquals(List.of(created, approved, rejected), journal.findByBookingId(42));
+		assertEquals(List.of(), journal.findByBookingId(43));
+	}
+
+	private BookingJournal open() throws IOException {
+		return new BookingJournal(directory, SEGMENT_SIZE, 1000);
+	}
+
+	private static List<JournalRecord> replay(BookingJournal journal) {
+		List<JournalRecord> records = new ArrayList<>();
+		journal.replay(records::add);
+		return records;
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.sorted().toList();
+		}
+	}
+
+	private static void corrupt(Path segment, int pos, byte value) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{value}), pos);
+		}
+	}
+
+	private static JournalRecord record(long bookingId, BookingStatus oldStatus, BookingStatus newStatus) {
+		return new JournalRecord(bookingId, bookingId * 10, 7, NOW, oldStatus, newStatus);
+	}
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.journal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.unit.DataSize;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class BookingJournalVerifierTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private ItemService itemService;
+
+	@TempDir
+	private Path directory;
+
+	private final AtomicInteger replays = new AtomicInteger();
+	private BookingJournal journal;
+	private long itemId;
+	private long bookerId;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		journal = new BookingJournal(directory, DataSize.ofKilobytes(4), 1000) {
+			@Override
+			public void replay(Consumer<JournalRecord> consumer) {
+				replays.incrementAndGet();
+				super.replay(consumer);
+			}
+		};
+		long ownerId = createUser();
+		bookerId = createUser();
+		Item item = new Item();
+		item.setName("Палатка");
+		item.setDescription("Палатка двухместная");
+		item.setAvailable(true);
+		itemId = itemService.create(item, ownerId).getId();
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		journal.close();
+	}
+
+	@Test
+	void journalIsReplayedOnceAndComparedRangeByRange() {
+		long consistent = booking(BookingStatus.WAITING);
+		long changed = booking(BookingStatus.APPROVED);
+		// удалённое бронирование не последнее: его запись остаётся внутри диапазонов таблицы
+		long removed = booking(BookingStatus.WAITING);
+		long unjournaled = booking(BookingStatus.REJECTED);
+		journal.append(record(consistent, BookingStatus.WAITING));
+		journal.append(record(changed, BookingStatus.WAITING));
+		journal.append(record(removed, BookingStatus.WAITING));
+		journal.append(record(removed + 1_000_000, BookingStatus.WAITING));
+		jdbcTemplate.update("DELETE FROM bookings WHERE id = ?", removed);
+
+		// маленькие диапазоны: бронирования теста попадают в разные
+		BookingJournalVerifier verifier = new BookingJournalVerifier(journal, jdbcTemplate, 2);
+		JournalVerificationDto result = verifier.verify(true);
+
+		assertEquals(1, replays.get());
+		assertEquals(4, result.getRecords());
+		assertEquals(1, result.getMismatched());
+		assertEquals(List.of(changed), result.getMismatchedSample());
+		assertEquals(2, result.getOrphaned());
+		assertEquals(result.getMissing() + 1, result.getRepaired());
+
+		assertEquals(BookingStatus.APPROVED, journal.findByBookingId(changed).getLast().getNewStatus());
+		JournalRecord repaired = journal.findByBookingId(unjournaled).getFirst();
+		assertEquals(BookingJournalVerifier.REPAIR_ACTOR_ID, repaired.getActorId());
+		assertEquals(BookingStatus.REJECTED, repaired.getNewStatus());
+		assertEquals(1, journal.findByBookingId(consistent).size());
+
+		JournalVerificationDto again = verifier.verify(false);
+		assertEquals(0, again.getMissing());
+		assertEquals(0, again.getMismatched());
+		assertEquals(2, again.getOrphaned());
+	}
+
+	private long booking(BookingStatus status) {
+		LocalDateTime start = LocalDateTime.now().plusDays(1);
+		jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, status, item_id, booker_id) " +
+				"VALUES (?, ?, ?, ?, ?)", start, start.plusDays(1), status.name(), itemId, bookerId);
+		return jdbcTemplate.queryForObject("SELECT MAX(id) FROM bookings", Long.class);
+	}
+
+	private JournalRecord record(long bookingId, BookingStatus status) {
+		return new JournalRecord(bookingId, itemId, bookerId, LocalDateTime.now(), null, status);
+	}
+
+	private long createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		return userService.createUser(new User(null, "Пользователь " + n, "journal" + n + "@test.ru", false)).getId();
+	}
+}
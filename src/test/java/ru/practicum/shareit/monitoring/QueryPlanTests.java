@@ -0,0 +1,288 @@
+package ru.practicum.shareit.monitoring;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Регрессия планов запросов: каждый запрос BookingRepository и ItemRepository выполняется на заполненной базе,
+ * его SQL перехватывается SqlCaptureInspector (отсюда пакет теста) и проверяется через EXPLAIN.
+ * Запрос не должен читать таблицу целиком и должен идти по первичному ключу или индексу из миграций.
+ * <p>
+ * По умолчанию проверяются планы H2: это страховка от пропавшего индекса, а не план Postgres. Оптимизатор H2
+ * другой, а индексы, которые H2 сам создаёт под внешние ключи, в Postgres не появятся и не засчитываются.
+ * С -Dshareit.query-plan.jdbc-url=jdbc:postgresql://... тест идёт на Postgres: база должна быть пустой и
+ * отдельной, схема создаётся миграциями, после проверки таблицы очищаются. Там проверяется общий план
+ * (plan_cache_mode = force_generic_plan), не зависящий от значений параметров, а enable_seqscan = off оставляет
+ * полный просмотр только там, где подходящего индекса нет: на маленьких тестовых таблицах он иначе выигрывал бы
+ * и у нужного индекса.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests {
+	private static final String POSTGRES_URL = System.getProperty("shareit.query-plan.jdbc-url");
+	private static final boolean POSTGRES = POSTGRES_URL != null;
+
+	private static final int USERS = 200;
+	private static final int ITEMS_PER_USER = 10;
+	private static final int BOOKINGS_PER_ITEM = 10;
+
+	// поиск подстроки LIKE '%text%' обычным индексом не ускоряется: вещи просматриваются целиком
+	private static final Map<String, String> FULL_SCAN_EXPECTED = Map.of(
+			"findAvailableItemsByText", "ITEMS",
+			"findAvailableItemsByTextAndPeriod", "ITEMS");
+
+	private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\S+)\\.tableScan");
+	private static final Pattern INDEX = Pattern.compile("/\\* PUBLIC\\.(\\w+)(?::| \\*/)");
+	private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+	private static final Pattern PARAMETER = Pattern.compile("\\?");
+
+	@Autowired
+	private BookingRepository bookingRepository;
+	@Autowired
+	private ItemRepository itemRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private long userId;
+	private long itemId;
+	private List<Long> itemIds;
+	// первый столбец индекса (TABLE.COLUMN) по имени индекса
+	private final Map<String, String> leadingColumns = new HashMap<>();
+	// первые столбцы индексов, которые будут и в Postgres: из миграций, первичных ключей и UNIQUE
+	private final Set<String> declaredLeadingColumns = new HashSet<>();
+	private final LocalDateTime now = LocalDateTime.now();
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		if (!POSTGRES) {
+			return;
+		}
+		registry.add("spring.datasource.driverClassName", () -> "org.postgresql.Driver");
+		registry.add("spring.datasource.url", () -> POSTGRES_URL);
+		registry.add("spring.datasource.username",
+				() -> System.getProperty("shareit.query-plan.username", "postgres"));
+		registry.add("spring.datasource.password",
+				() -> System.getProperty("shareit.query-plan.password", "postgres"));
+	}
+
+	@BeforeAll
+	void seed() {
+		if (POSTGRES && jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class) > 0) {
+			throw new IllegalStateException("База для проверки планов должна быть пустой: в ней уже есть вещи");
+		}
+		// ряд 1..n в столбце x
+		String range = POSTGRES ? "generate_series(1, ?) AS r(x)" : "SYSTEM_RANGE(1, ?)";
+		jdbcTemplate.update("INSERT INTO users (name, email) " +
+				"SELECT 'Пользователь ' || x, 'plan' || x || '@test.ru' FROM " + range, USERS);
+		long firstUser = jdbcTemplate.queryForObject(
+				"SELECT id FROM users WHERE email = 'plan1@test.ru'", Long.class);
+		jdbcTemplate.update("INSERT INTO items (name, description, available, owner_id) " +
+				"SELECT 'Вещь ' || x, 'Описание вещи ' || x, MOD(x, 5) <> 0, ? + MOD(x, ?) " +
+				"FROM " + range, firstUser, USERS, USERS * ITEMS_PER_USER);
+		long firstItem = jdbcTemplate.queryForObject(
+				"SELECT MIN(id) FROM items WHERE name = 'Вещь 1'", Long.class);
+		jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, status, item_id, booker_id) " +
+						"SELECT LOCALTIMESTAMP + (x / 10 - 500) * INTERVAL '1' DAY, " +
+						"LOCALTIMESTAMP + (x / 10 - 498) * INTERVAL '1' DAY, " +
+						"CASE MOD(x, 3) WHEN 0 THEN 'WAITING' WHEN 1 THEN 'APPROVED' ELSE 'REJECTED' END, " +
+						"? + MOD(x, ?), ? + MOD(x * 7, ?) " +
+						"FROM " + range,
+				firstItem, USERS * ITEMS_PER_USER, firstUser, USERS, USERS * ITEMS_PER_USER * BOOKINGS_PER_ITEM);
+		jdbcTemplate.update("INSERT INTO comments (text, item_id, author_id, created, rating) " +
+						"SELECT 'Отзыв ' || x, ? + MOD(x, ?), ? + MOD(x * 3, ?), LOCALTIMESTAMP, MOD(x, 5) + 1 " +
+						"FROM " + range,
+				firstItem, USERS * ITEMS_PER_USER, firstUser, USERS, USERS * ITEMS_PER_USER * 2);
+		jdbcTemplate.execute("ANALYZE");
+
+		userId = firstUser + 1;
+		itemId = firstItem + 1;
+		itemIds = List.of(firstItem + 1, firstItem + 2, firstItem + 3);
+		if (POSTGRES) {
+			return;
+		}
+		jdbcTemplate.query("SELECT i.index_name, i.index_type_name, c.table_name, c.column_name " +
+				"FROM information_schema.indexes i " +
+				"JOIN information_schema.index_columns c " +
+				"ON c.index_schema = i.index_schema AND c.index_name = i.index_name " +
+				"WHERE i.index_schema = 'PUBLIC' AND c.ordinal_position = 1", rs -> {
+			String column = rs.getString("table_name") + "." + rs.getString("column_name");
+			leadingColumns.put(rs.getString("index_name"), column);
+			if (isDeclared(rs.getString("index_name"), rs.getString("index_type_name"))) {
+				declaredLeadingColumns.add(column);
+			}
+		});
+	}
+
+	@AfterAll
+	void cleanUp() {
+		if (POSTGRES) {
+			jdbcTemplate.execute("TRUNCATE comments, bookings, items, users RESTART IDENTITY CASCADE");
+		}
+	}
+
+	@Test
+	void bookingQueriesUseIndexes() {
+		Map<String, Runnable> queries = Map.ofEntries(
+				Map.entry("findActiveById", () -> bookingRepository.findActiveById(1L)),
+				Map.entry("findByBookerIdOrderByStartDesc",
+						() -> bookingRepository.findByBookerIdOrderByStartDesc(userId)),
+				Map.entry("findFinishedByBookerId", () -> bookingRepository.findFinishedByBookerId(userId, now)),
+				Map.entry("findLastBookings", () -> bookingRepository.findLastBookings(itemId, now)),
+				Map.entry("findLastBookingsForItems", () -> bookingRepository.findLastBookingsForItems(itemIds, now)),
+				Map.entry("findNextBookingsForItems", () -> bookingRepository.findNextBookingsForItems(itemIds, now)),
+				Map.entry("findAllByBookerIdAndStartTimeIsAfter",
+						() -> bookingRepository.findAllByBookerIdAndStartTimeIsAfter(userId, now)),
+				Map.entry("findNextBookings", () -> bookingRepository.findNextBookings(itemId, now)),
+				Map.entry("findByBookerIdAndStatus",
+						() -> bookingRepository.findByBookerIdAndStatus(userId, BookingStatus.APPROVED)),
+				Map.entry("findCurrentByOwnerId", () -> bookingRepository.findCurrentByOwnerId(userId, now)),
+				Map.entry("findPastByOwnerId", () -> bookingRepository.findPastByOwnerId(userId, now)),
+				Map.entry("findFutureByOwnerId", () -> bookingRepository.findFutureByOwnerId(userId, now)),
+				Map.entry("findByOwnerIdAndStatus",
+						() -> bookingRepository.findByOwnerIdAndStatus(userId, BookingStatus.WAITING)),
+				Map.entry("findByItemOwnerIdOrderByStartDesc",
+						() -> bookingRepository.findByItemOwnerIdOrderByStartDesc(userId)),
+				Map.entry("findCurrentByBookerId", () -> bookingRepository.findCurrentByBookerId(userId, now)),
+				Map.entry("countByBookerId", () -> bookingRepository.countByBookerId(userId, now)),
+				Map.entry("countByOwnerId", () -> bookingRepository.countByOwnerId(userId, now)),
+				Map.entry("findChangedByBookerId", () -> bookingRepository.findChangedByBookerId(
+						userId, now.minusDays(1), 0L, now, PageRequest.ofSize(100))),
+				Map.entry("findChangedByOwnerId", () -> bookingRepository.findChangedByOwnerId(
+						userId, now.minusDays(1), 0L, now, PageRequest.ofSize(100))));
+
+		assertPlans(queries);
+	}
+
+	@Test
+	void itemQueriesUseIndexes() {
+		Map<String, Runnable> queries = Map.ofEntries(
+				Map.entry("findByOwnerId", () -> itemRepository.findByOwnerId(userId, PageRequest.ofSize(20))),
+				Map.entry("findAvailableItemsByText",
+						() -> itemRepository.findAvailableItemsByText("дрель", PageRequest.ofSize(20))),
+				Map.entry("findAvailableItemsByTextAndPeriod", () -> itemRepository.findAvailableItemsByTextAndPeriod(
+						"дрель", now, now.plusDays(1), PageRequest.ofSize(20))),
+				Map.entry("findAllByRequestIdInOrderById",
+						() -> itemRepository.findAllByRequestIdInOrderById(List.of(1L, 2L))),
+				Map.entry("existsByOwnerId", () -> itemRepository.existsByOwnerId(userId)),
+				Map.entry("findMaxId", () -> itemRepository.findMaxId()),
+				Map.entry("findSuggestions", () -> itemRepository.findSuggestions(itemId, itemId + 100)),
+				Map.entry("addCommentToAggregates", () -> itemRepository.addCommentToAggregates(itemId, now, 5, 1)),
+				Map.entry("reconcileCommentAggregates",
+						() -> itemRepository.reconcileCommentAggregates(itemId, itemId + 100)),
+				Map.entry("markDeleted", () -> itemRepository.markDeleted(itemId)),
+				Map.entry("markDeletedByOwnerId", () -> itemRepository.markDeletedByOwnerId(userId)),
+				Map.entry("updateFields",
+						() -> itemRepository.updateFields(itemId, userId, "Дрель", null, true)));
+
+		assertPlans(queries);
+	}
+
+	private void assertPlans(Map<String, Runnable> queries) {
+		List<String> problems = new ArrayList<>();
+		queries.forEach((method, query) -> {
+			List<String> plans = explain(query);
+			assertFalse(plans.isEmpty(), method + ": SQL не перехвачен");
+			for (String plan : plans) {
+				String problem = problemOf(method, plan);
+				if (problem != null) {
+					problems.add(method + ": " + problem + "\n" + plan);
+				}
+			}
+		});
+		assertTrue(problems.isEmpty(), String.join("\n\n", problems));
+	}
+
+	// изменяющие запросы тоже выполняются: транзакция откатывается, чтобы не портить данные для остальных
+	private List<String> explain(Runnable query) {
+		return transactionTemplate.execute(status -> {
+			status.setRollbackOnly();
+			SqlCaptureInspector.start();
+			List<String> statements;
+			try {
+				query.run();
+			} finally {
+				statements = SqlCaptureInspector.stop();
+			}
+			if (POSTGRES) {
+				jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+				jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+			}
+			return statements.stream()
+					.map(sql -> POSTGRES ? explainGeneric(sql) : jdbcTemplate.query(
+							connection -> connection.prepareStatement("EXPLAIN " + sql),
+							(rs, rowNum) -> rs.getString(1)).getFirst())
+					.toList();
+		});
+	}
+
+	// план Postgres без значений параметров: запрос готовится с $n и выполняется с NULL под общим планом
+	private String explainGeneric(String sql) {
+		Matcher parameter = PARAMETER.matcher(sql);
+		StringBuilder prepared = new StringBuilder("PREPARE plan_check AS ");
+		List<String> nulls = new ArrayList<>();
+		while (parameter.find()) {
+			nulls.add("NULL");
+			parameter.appendReplacement(prepared, "\\$" + nulls.size());
+		}
+		jdbcTemplate.execute(parameter.appendTail(prepared).toString());
+		try {
+			String execute = nulls.isEmpty() ? "plan_check" : "plan_check(" + String.join(", ", nulls) + ")";
+			return String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE " + execute, String.class));
+		} finally {
+			jdbcTemplate.execute("DEALLOCATE plan_check");
+		}
+	}
+
+	private String problemOf(String method, String plan) {
+		Matcher scan = (POSTGRES ? SEQ_SCAN : TABLE_SCAN).matcher(plan);
+		while (scan.find()) {
+			if (!scan.group(1).equalsIgnoreCase(FULL_SCAN_EXPECTED.get(method))) {
+				return "полный просмотр " + scan.group(1);
+			}
+		}
+		if (POSTGRES) {
+			return null;
+		}
+		// H2 может предпочесть свой индекс под внешний ключ; в Postgres его заменит индекс из миграций с тем же началом
+		Matcher index = INDEX.matcher(plan);
+		while (index.find()) {
+			String name = index.group(1);
+			String column = leadingColumns.get(name);
+			if (column != null && !declaredLeadingColumns.contains(column)) {
+				return "индекс " + name + " по " + column + " создан H2 под внешний ключ, в миграциях такого нет";
+			}
+		}
+		return null;
+	}
+
+	private static boolean isDeclared(String indexName, String indexType) {
+		return indexName.startsWith("IDX_") || "PRIMARY KEY".equals(indexType) || "UNIQUE INDEX".equals(indexType);
+	}
+}
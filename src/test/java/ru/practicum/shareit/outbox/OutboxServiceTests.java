@@ -0,0 +1,177 @@
+package ru.practicum.shareit.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.outbox.model.OutboxEvent;
+import ru.practicum.shareit.outbox.model.OutboxEventStatus;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.repository.OutboxEventRepository;
+import ru.practicum.shareit.outbox.service.OutboxService;
+import ru.practicum.shareit.outbox.sink.InMemoryOutboxSink;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// своя база: фоновый разбор из контекстов других тестов не должен забирать события этого теста,
+// а свой отложен, чтобы тест сам решал, когда разбирать очередь
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:outbox",
+		"shareit.outbox.poll-interval=3600000",
+		"shareit.outbox.max-attempts=3",
+		"shareit.outbox.backoff-base=10s"
+})
+class OutboxServiceTests {
+	@Autowired
+	private OutboxService outboxService;
+	@Autowired
+	private OutboxEventRepository outboxEventRepository;
+	@Autowired
+	private InMemoryOutboxSink sink;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		outboxEventRepository.deleteAll();
+		sink.clear();
+	}
+
+	@Test
+	void readyEventsAreClaimedOnceAndDeliveredInOrder() {
+		long first = event(OutboxEventType.BOOKING_CREATED, 1);
+		long second = event(OutboxEventType.BOOKING_APPROVED, 1);
+		long later = event(OutboxEventType.BOOKING_CREATED, 2);
+		jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = ? WHERE id = ?",
+				LocalDateTime.now().plusHours(1), later);
+
+		assertEquals(2, outboxService.dispatchBatch());
+		assertEquals(0, outboxService.dispatchBatch());
+
+		assertEquals(List.of(first, second), deliveredIds());
+		for (long id : List.of(first, second)) {
+			OutboxEvent event = load(id);
+			assertEquals(OutboxEventStatus.DELIVERED, event.getStatus());
+			assertEquals(1, event.getAttempts());
+			assertNotNull(event.getDeliveredAt());
+		}
+		assertEquals(OutboxEventStatus.PENDING, load(later).getStatus());
+	}
+
+	@Test
+	void failedDeliveryIsRetriedWithGrowingBackoff() {
+		long id = event(OutboxEventType.BOOKING_CREATED, 1);
+		sink.failWhen(event -> true);
+
+		LocalDateTime before = LocalDateTime.now();
+		outboxService.dispatchBatch();
+		OutboxEvent event = load(id);
+		assertEquals(OutboxEventStatus.PENDING, event.getStatus());
+		assertEquals(1, event.getAttempts());
+		assertNotNull(event.getLastError());
+		assertDelay(before, event.getNextAttemptAt(), Duration.ofSeconds(10));
+
+		// до срока событие не берётся
+		assertEquals(0, outboxService.dispatchBatch());
+
+		makeReady(id);
+		before = LocalDateTime.now();
+		outboxService.dispatchBatch();
+		event = load(id);
+		assertEquals(2, event.getAttempts());
+		assertDelay(before, event.getNextAttemptAt(), Duration.ofSeconds(20));
+
+		sink.failWhen(e -> false);
+		makeReady(id);
+		outboxService.dispatchBatch();
+		event = load(id);
+		assertEquals(OutboxEventStatus.DELIVERED, event.getStatus());
+		assertEquals(3, event.getAttempts());
+		assertNull(event.getLastError());
+	}
+
+	@Test
+	void eventIsMarkedFailedAfterMaxAttempts() {
+		long id = event(OutboxEventType.BOOKING_CREATED, 1);
+		sink.failWhen(event -> true);
+
+		for (int attempt = 0; attempt < 3; attempt++) {
+			makeReady(id);
+			outboxService.dispatchBatch();
+		}
+
+		OutboxEvent event = load(id);
+		assertEquals(OutboxEventStatus.FAILED, event.getStatus());
+		assertEquals(3, event.getAttempts());
+		makeReady(id);
+		assertEquals(0, outboxService.dispatchBatch());
+	}
+
+	@Test
+	void failingEventDoesNotHoldBackOthersButKeepsItsAggregateInOrder() {
+		long broken = event(OutboxEventType.BOOKING_CREATED, 1);
+		long sameBooking = event(OutboxEventType.BOOKING_APPROVED, 1);
+		long otherBooking = event(OutboxEventType.BOOKING_CREATED, 2);
+		// тот же id, но другой агрегат: не ждёт бронирование 1. Его обрабатывает UserReplicator, а не получатель
+		long user = event(OutboxEventType.USER_CHANGED, 1);
+		sink.failWhen(event -> event.getId() == broken);
+
+		assertEquals(4, outboxService.dispatchBatch());
+
+		assertEquals(List.of(otherBooking), deliveredIds());
+		assertEquals(OutboxEventStatus.DELIVERED, load(user).getStatus());
+		OutboxEvent failed = load(broken);
+		assertEquals(OutboxEventStatus.PENDING, failed.getStatus());
+		assertEquals(1, failed.getAttempts());
+		OutboxEvent waiting = load(sameBooking);
+		assertEquals(OutboxEventStatus.PENDING, waiting.getStatus());
+		assertEquals(0, waiting.getAttempts());
+		assertEquals(failed.getNextAttemptAt(), waiting.getNextAttemptAt());
+
+		sink.failWhen(event -> false);
+		makeReady(broken);
+		makeReady(sameBooking);
+		outboxService.dispatchBatch();
+		assertEquals(List.of(otherBooking, broken, sameBooking), deliveredIds());
+	}
+
+	private long event(OutboxEventType type, long aggregateId) {
+		LocalDateTime now = LocalDateTime.now();
+		return outboxEventRepository.save(OutboxEvent.builder()
+				.aggregateId(aggregateId)
+				.type(type)
+				.payload("{}")
+				.status(OutboxEventStatus.PENDING)
+				.attempts(0)
+				.createdAt(now)
+				.nextAttemptAt(now)
+				.build()).getId();
+	}
+
+	private void makeReady(long id) {
+		jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = ? WHERE id = ?",
+				LocalDateTime.now().minusSeconds(1), id);
+	}
+
+	private OutboxEvent load(long id) {
+		return outboxEventRepository.findById(id).orElseThrow();
+	}
+
+	private List<Long> deliveredIds() {
+		return sink.getDelivered().stream().map(OutboxEvent::getId).toList();
+	}
+
+	private static void assertDelay(LocalDateTime before, LocalDateTime nextAttemptAt, Duration delay) {
+		assertTrue(!nextAttemptAt.isBefore(before.plus(delay))
+						&& nextAttemptAt.isBefore(before.plus(delay).plusSeconds(5)),
+				"следующая попытка " + nextAttemptAt + ", ожидалась через " + delay + " после " + before);
+	}
+}
@@ -0,0 +1,143 @@
+package ru.practicum.shareit.request;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.exceptions.NotFoundException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.dto.ItemAnswerDto;
+import ru.practicum.shareit.request.dto.ItemRequestDto;
+import ru.practicum.shareit.request.dto.NewItemRequestDto;
+import ru.practicum.shareit.request.service.ItemRequestService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ItemRequestTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	@Autowired
+	private ItemRequestService itemRequestService;
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private MockMvc mockMvc;
+
+	private long requesterId;
+	private long ownerId;
+
+	@BeforeEach
+	void setUp() {
+		requesterId = createUser();
+		ownerId = createUser();
+	}
+
+	@Test
+	void ownRequestsComeNewestFirstWithTheirAnswers() {
+		ItemRequestDto older = request(requesterId, "Нужна дрель");
+		ItemRequestDto newer = request(requesterId, "Нужна пила");
+		long drill = answer(older.getId(), "Дрель");
+		long saw = answer(newer.getId(), "Пила");
+		long secondSaw = answer(newer.getId(), "Пила цепная");
+
+		List<ItemRequestDto> own = itemRequestService.getOwn(requesterId);
+
+		assertEquals(List.of(newer.getId(), older.getId()), own.stream().map(ItemRequestDto::getId).toList());
+		assertEquals(List.of(saw, secondSaw), answerIds(own.get(0)));
+		assertEquals(List.of(drill), answerIds(own.get(1)));
+		assertEquals(ownerId, own.get(1).getItems().getFirst().getOwnerId());
+		assertNotNull(own.get(1).getCreated());
+	}
+
+	@Test
+	void othersSkipOwnAndDeletedUsersRequests() {
+		long deletedId = createUser();
+		ItemRequestDto first = request(requesterId, "Нужна стремянка");
+		ItemRequestDto second = request(requesterId, "Нужен перфоратор");
+		request(deletedId, "Нужен молоток");
+		userService.deleteUser(deletedId);
+		request(ownerId, "Свой запрос");
+
+		List<ItemRequestDto> page = itemRequestService.getOthers(ownerId, 0, 2);
+		assertEquals(List.of(second.getId(), first.getId()), page.stream().map(ItemRequestDto::getId).toList());
+
+		List<ItemRequestDto> next = itemRequestService.getOthers(ownerId, 1, 1);
+		assertEquals(List.of(first.getId()), next.stream().map(ItemRequestDto::getId).toList());
+	}
+
+	@Test
+	void requestOfDeletedUserIsNotFound() {
+		long deletedId = createUser();
+		ItemRequestDto hidden = request(deletedId, "Нужен молоток");
+		ItemRequestDto visible = request(requesterId, "Нужна дрель");
+		long drill = answer(visible.getId(), "Дрель");
+		userService.deleteUser(deletedId);
+
+		assertThrows(NotFoundException.class, () -> itemRequestService.getById(ownerId, hidden.getId()));
+		assertEquals(List.of(drill), answerIds(itemRequestService.getById(ownerId, visible.getId())));
+	}
+
+	@Test
+	void itemCannotAnswerUnknownRequest() {
+		assertThrows(NotFoundException.class, () -> answer(Long.MAX_VALUE, "Дрель"));
+	}
+
+	@Test
+	void createAcceptsOnlyDescription() throws Exception {
+		mockMvc.perform(post("/requests")
+						.header("X-Sharer-User-Id", requesterId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"description\": \" \"}"))
+				.andExpect(status().isBadRequest());
+
+		// id, дата и ответы из тела не принимаются
+		mockMvc.perform(post("/requests")
+						.header("X-Sharer-User-Id", requesterId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"id\": 1, \"description\": \"Нужна дрель\", \"created\": \"2000-01-01T00:00:00\"}"))
+				.andExpect(status().isOk());
+		ItemRequestDto created = itemRequestService.getOwn(requesterId).getFirst();
+		assertTrue(created.getCreated().getYear() > 2000);
+		assertTrue(created.getItems().isEmpty());
+	}
+
+	private ItemRequestDto request(long userId, String description) {
+		return itemRequestService.create(userId, new NewItemRequestDto(description));
+	}
+
+	private long answer(long requestId, String name) {
+		Item item = new Item();
+		item.setName(name);
+		item.setDescription(name + " в ответ на запрос");
+		item.setAvailable(true);
+		item.setRequestId(requestId);
+		return itemService.create(item, ownerId).getId();
+	}
+
+	private static List<Long> answerIds(ItemRequestDto request) {
+		return request.getItems().stream().map(ItemAnswerDto::getId).toList();
+	}
+
+	private long createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		return userService.createUser(new User(null, "Пользователь " + n, "request" + n + "@test.ru", false)).getId();
+	}
+}
@@ -0,0 +1,132 @@
+package ru.practicum.shareit.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import ru.practicum.shareit.exceptions.ValidationException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSearchSort;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.outbox.model.OutboxEventType;
+import ru.practicum.shareit.outbox.service.OutboxDispatcher;
+import ru.practicum.shareit.outbox.sink.InMemoryOutboxSink;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// фоновый разбор outbox отложен, чтобы тест сам решал, когда разбирать очередь
+@SpringBootTest(properties = "shareit.outbox.poll-interval=3600000")
+@ActiveProfiles({"test", "sharded"})
+class ShardingTests {
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private ItemService itemService;
+	@Autowired
+	private OutboxDispatcher outboxDispatcher;
+	@Autowired
+	private InMemoryOutboxSink outboxSink;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private ShardIdStripingMigration stripingMigration;
+	@Autowired
+	private ShardRouter shardRouter;
+	@Value("${shareit.sharding.urls}")
+	private List<String> urls;
+
+	@Test
+	void userIsCopiedToReplicasRightAfterCommit() {
+		User user = userService.createUser(new User(null, "Копия", "copy@test.ru", false));
+
+		assertEquals(List.of("Копия", "Копия"), replicaNames(user.getId()));
+	}
+
+	@Test
+	void outboxRestoresReplicaMissedAfterCommit() {
+		User user = userService.createUser(new User(null, "До", "outbox@test.ru", false));
+		userService.updateUser(user.getId(), new User(null, "После", null, false));
+		// копия на шарде 1 разошлась с основной, например запись после коммита не прошла
+		ShardContext.run(1, () -> jdbcTemplate.update("UPDATE users SET name = 'Старое' WHERE id = ?", user.getId()));
+
+		outboxDispatcher.dispatch();
+
+		assertEquals(List.of("После", "После"), replicaNames(user.getId()));
+		assertTrue(outboxSink.getDelivered().stream().noneMatch(event -> event.getType() == OutboxEventType.USER_CHANGED),
+				"события копирования пользователей не должны уходить во внешний получатель");
+	}
+
+	@Test
+	void deepSearchPageIsRejected() {
+		assertThrows(ValidationException.class,
+				() -> itemService.search("дрель", 2000, 10, ItemSearchSort.NONE, null, null));
+	}
+
+	@Test
+	void idsOfDifferentShardsDoNotCollideAfterRestart() {
+		List<Long> ownerIds = new ArrayList<>();
+		Set<Long> ids = new HashSet<>();
+		for (int i = 0; i < shardRouter.getShardCount(); i++) {
+			long ownerId = userService.createUser(new User(null, "Владелец " + i, "striping" + i + "@test.ru", false))
+					.getId();
+			ownerIds.add(ownerId);
+			Item item = new Item();
+			item.setName("Вещь до перезапуска");
+			item.setDescription("Вещь до перезапуска");
+			item.setAvailable(true);
+			ids.add(itemService.create(item, ownerId).getId());
+		}
+
+		// перезапуск: новые пулы к тем же базам и тот же прогон миграций, что при старте приложения.
+		// Конфигурация создаётся заново: у бина контекста вызов вернул бы уже созданный источник
+		LazyConnectionDataSourceProxy restarted = (LazyConnectionDataSourceProxy) new ShardingConfig().dataSource(urls,
+				"sa", "", 2, true, new String[]{"classpath:db/migration"}, true, "0", stripingMigration);
+		try {
+			JdbcTemplate restartedJdbc = new JdbcTemplate(restarted);
+			for (long ownerId : ownerIds) {
+				int shard = shardRouter.shardOfOwner(ownerId);
+				ids.add(ShardContext.call(shard, () -> {
+					restartedJdbc.update("INSERT INTO items (name, description, available, owner_id) " +
+							"VALUES ('Вещь после перезапуска', 'Вещь после перезапуска', TRUE, ?)", ownerId);
+					return restartedJdbc.queryForObject("SELECT MAX(id) FROM items WHERE owner_id = ?",
+							Long.class, ownerId);
+				}));
+				assertEquals(1, ShardContext.call(shard, () -> restartedJdbc.queryForObject(
+						"SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"version\" = '12' AND \"success\"",
+						Integer.class)), "разметка id на шарде " + shard + " должна выполниться один раз");
+			}
+		} finally {
+			((ShardRoutingDataSource) restarted.getTargetDataSource()).getResolvedDataSources().values()
+					.forEach(dataSource -> ((HikariDataSource) dataSource).close());
+		}
+
+		assertEquals(2 * ownerIds.size(), ids.size(), "id вещей разных шардов совпали: " + ids);
+		for (long ownerId : ownerIds) {
+			int shard = shardRouter.shardOfOwner(ownerId);
+			List<Long> shardIds = ShardContext.call(shard, () -> jdbcTemplate.queryForList(
+					"SELECT id FROM items WHERE owner_id = ?", Long.class, ownerId));
+			assertEquals(2, shardIds.size());
+			shardIds.forEach(id -> assertEquals(shard, shardRouter.shardOfItem(id), "вещь " + id + " не на своём шарде"));
+		}
+	}
+
+	private List<String> replicaNames(Long userId) {
+		return List.of(1, 2).stream()
+				.map(shard -> ShardContext.call(shard, () -> jdbcTemplate.queryForObject(
+						"SELECT name FROM users WHERE id = ?", String.class, userId)))
+				.toList();
+	}
+}
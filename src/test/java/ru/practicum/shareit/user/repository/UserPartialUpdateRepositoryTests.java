@@ -0,0 +1,121 @@
+package ru.practicum.shareit.user.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserPartialUpdateRepositoryTests {
+	private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private UserService userService;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+	@Autowired
+	private MockMvc mockMvc;
+
+	private long userId;
+	private String email;
+
+	@BeforeEach
+	void setUp() {
+		User user = createUser();
+		userId = user.getId();
+		email = user.getEmail();
+	}
+
+	@Test
+	void changesOnlyGivenFieldsAndReturnsRowAfterWrite() {
+		User renamed = userRepository.updateFields(userId, "Новое имя", null).orElseThrow();
+
+		assertEquals(userId, renamed.getId());
+		assertEquals("Новое имя", renamed.getName());
+		assertEquals(email, renamed.getEmail(), "колонки, которые запрос не меняет, тоже возвращаются");
+		assertEquals(Map.of("NAME", "Новое имя", "EMAIL", email), row());
+
+		User moved = userRepository.updateFields(userId, null, "moved" + userId + "@test.ru").orElseThrow();
+		assertEquals("Новое имя", moved.getName());
+		assertEquals("moved" + userId + "@test.ru", moved.getEmail());
+	}
+
+	@Test
+	void withoutFieldsRowIsReadWithSameCondition() {
+		User user = userRepository.updateFields(userId, null, null).orElseThrow();
+
+		assertEquals(email, user.getEmail());
+	}
+
+	@Test
+	void deletedOrMissingUserIsNotUpdated() {
+		jdbcTemplate.update("UPDATE users SET deleted = TRUE WHERE id = ?", userId);
+
+		assertTrue(userRepository.updateFields(userId, "Удалённый", null).isEmpty());
+		assertTrue(userRepository.updateFields(userId, null, null).isEmpty());
+		assertTrue(userRepository.updateFields(Long.MAX_VALUE, "Нет такого", null).isEmpty());
+		assertEquals(Map.of("NAME", "Пользователь " + userId, "EMAIL", email), row());
+	}
+
+	@Test
+	void takenEmailIsRejectedByUniqueIndex() {
+		User other = createUser();
+
+		assertThrows(DataIntegrityViolationException.class,
+				() -> userRepository.updateFields(userId, "Новое имя", other.getEmail()));
+		assertEquals(Map.of("NAME", "Пользователь " + userId, "EMAIL", email), row());
+
+		// свой же email занятым не считается
+		assertEquals(email, userRepository.updateFields(userId, null, email).orElseThrow().getEmail());
+	}
+
+	@Test
+	void patchWithTakenEmailReturnsConflict() throws Exception {
+		User deleted = createUser();
+		userService.deleteUser(deleted.getId());
+
+		mockMvc.perform(patch("/users/{userId}", userId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"email\": \"" + deleted.getEmail() + "\"}"))
+				.andExpect(status().isConflict());
+		mockMvc.perform(patch("/users/{userId}", userId)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"name\": \"Переименован\"}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Переименован"))
+				.andExpect(jsonPath("$.email").value(email));
+	}
+
+	private Map<String, Object> row() {
+		return jdbcTemplate.queryForMap("SELECT name, email FROM users WHERE id = ?", userId);
+	}
+
+	// имя по id, чтобы тесты могли проверить, что оно не изменилось
+	private User createUser() {
+		int n = SEQUENCE.incrementAndGet();
+		User user = userService.createUser(new User(null, "Временное", "user-update" + n + "@test.ru", false));
+		jdbcTemplate.update("UPDATE users SET name = ? WHERE id = ?", "Пользователь " + user.getId(), user.getId());
+		user.setName("Пользователь " + user.getId());
+		return user;
+	}
+}